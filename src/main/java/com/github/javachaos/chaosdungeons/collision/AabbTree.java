@@ -0,0 +1,399 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import static org.lwjgl.opengl.GL11.GL_LINES;
+import static org.lwjgl.opengl.GL11.glBegin;
+import static org.lwjgl.opengl.GL11.glEnd;
+import static org.lwjgl.opengl.GL11.glVertex2f;
+
+import java.util.Arrays;
+
+import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
+
+/**
+ * A dynamic bounding volume tree broadphase. Every proxy is a leaf holding
+ * its box grown by a margin, the fat box, and every internal node holds the
+ * union of its two children. A proxy is only reinserted once its box leaves
+ * its fat box, so bodies which move a little stay where they are. Leaves are
+ * inserted next to the sibling which grows the tree perimeter the least and
+ * the tree is kept balanced with rotations on the way back up, so it copes
+ * with boxes of very different sizes without a fixed region.
+ * The nodes are kept in primitive arrays and recycled through a free list.
+ *
+ * @param <T> the type of value held by each proxy
+ */
+public class AabbTree<T> implements Broadphase<T> {
+
+  static final float DEFAULT_MARGIN = 2f;
+  private static final int NULL_NODE = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final BroadphaseProxies<T> proxies = new BroadphaseProxies<>();
+  private final float margin;
+  private float[] minX = new float[INITIAL_CAPACITY];
+  private float[] minY = new float[INITIAL_CAPACITY];
+  private float[] maxX = new float[INITIAL_CAPACITY];
+  private float[] maxY = new float[INITIAL_CAPACITY];
+  // For free nodes the parent holds the next free node.
+  private int[] parent = new int[INITIAL_CAPACITY];
+  private int[] child1 = new int[INITIAL_CAPACITY];
+  private int[] child2 = new int[INITIAL_CAPACITY];
+  private int[] height = new int[INITIAL_CAPACITY];
+  private int[] proxyOf = new int[INITIAL_CAPACITY];
+  private int[] leafOf = new int[INITIAL_CAPACITY];
+  private int[] stack = new int[INITIAL_CAPACITY];
+  private int nodeCapacity;
+  private int nodeCount;
+  private int freeNode = NULL_NODE;
+  private int root = NULL_NODE;
+
+  /**
+   * Create a new tree with the default margin.
+   */
+  public AabbTree() {
+    this(DEFAULT_MARGIN);
+  }
+
+  /**
+   * Create a new tree.
+   *
+   * @param margin the distance each fat box extends past its proxy box
+   */
+  public AabbTree(float margin) {
+    if (margin < 0) {
+      throw new IllegalArgumentException("Margin must not be negative.");
+    }
+    this.margin = margin;
+  }
+
+  @Override
+  public int add(T value, float x0, float y0, float x1, float y1) {
+    int proxy = proxies.allocate(value, x0, y0, x1, y1);
+    if (proxy >= leafOf.length) {
+      leafOf = Arrays.copyOf(leafOf, leafOf.length * 2);
+    }
+    int leaf = allocateNode();
+    setFat(leaf, x0, y0, x1, y1);
+    proxyOf[leaf] = proxy;
+    leafOf[proxy] = leaf;
+    insertLeaf(leaf);
+    return proxy;
+  }
+
+  @Override
+  public boolean move(int proxy, float x0, float y0, float x1, float y1) {
+    proxies.set(proxy, x0, y0, x1, y1);
+    int leaf = leafOf[proxy];
+    if (minX[leaf] <= x0 && minY[leaf] <= y0 && maxX[leaf] >= x1 && maxY[leaf] >= y1) {
+      return false;
+    }
+    removeLeaf(leaf);
+    setFat(leaf, x0, y0, x1, y1);
+    insertLeaf(leaf);
+    return true;
+  }
+
+  @Override
+  public void remove(int proxy) {
+    int leaf = leafOf[proxy];
+    removeLeaf(leaf);
+    freeNode(leaf);
+    proxies.free(proxy);
+  }
+
+  @Override
+  public T getValue(int proxy) {
+    return proxies.getValue(proxy);
+  }
+
+  @Override
+  public void query(float x0, float y0, float x1, float y1, Visitor<T> visitor) {
+    if (root == NULL_NODE) {
+      return;
+    }
+    int top = 0;
+    stack[top++] = root;
+    while (top > 0) {
+      int n = stack[--top];
+      if (minX[n] > x1 || maxX[n] < x0 || minY[n] > y1 || maxY[n] < y0) {
+        continue;
+      }
+      if (isLeaf(n)) {
+        int proxy = proxyOf[n];
+        if (proxies.overlaps(proxy, x0, y0, x1, y1)) {
+          visitor.visit(proxy, proxies.getValue(proxy));
+        }
+      } else {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = child1[n];
+        stack[top++] = child2[n];
+      }
+    }
+  }
+
+  @Override
+  public void queryPairs(PairVisitor<T> visitor) {
+    proxies.queryPairs(this, visitor);
+  }
+
+  @Override
+  public int size() {
+    return proxies.size();
+  }
+
+  /**
+   * Get the height of the tree, a single leaf has height zero.
+   *
+   * @return the height or -1 if the tree is empty
+   */
+  public int getHeight() {
+    return root == NULL_NODE ? -1 : height[root];
+  }
+
+  /**
+   * Get the number of nodes in use, leaves and internal nodes.
+   *
+   * @return the node count
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  private boolean isLeaf(int n) {
+    return child1[n] == NULL_NODE;
+  }
+
+  private void setFat(int n, float x0, float y0, float x1, float y1) {
+    minX[n] = x0 - margin;
+    minY[n] = y0 - margin;
+    maxX[n] = x1 + margin;
+    maxY[n] = y1 + margin;
+  }
+
+  private void setUnion(int n, int a, int b) {
+    minX[n] = Math.min(minX[a], minX[b]);
+    minY[n] = Math.min(minY[a], minY[b]);
+    maxX[n] = Math.max(maxX[a], maxX[b]);
+    maxY[n] = Math.max(maxY[a], maxY[b]);
+  }
+
+  private float perimeter(int n) {
+    return 2f * (maxX[n] - minX[n] + maxY[n] - minY[n]);
+  }
+
+  private float unionPerimeter(int a, int b) {
+    float w = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+    float h = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+    return 2f * (w + h);
+  }
+
+  private int allocateNode() {
+    if (freeNode == NULL_NODE) {
+      if (nodeCapacity == parent.length) {
+        grow(nodeCapacity * 2);
+      }
+      freeNode = nodeCapacity++;
+      parent[freeNode] = NULL_NODE;
+    }
+    int n = freeNode;
+    freeNode = parent[n];
+    parent[n] = NULL_NODE;
+    child1[n] = NULL_NODE;
+    child2[n] = NULL_NODE;
+    height[n] = 0;
+    proxyOf[n] = NULL_PROXY;
+    nodeCount++;
+    return n;
+  }
+
+  private void freeNode(int n) {
+    parent[n] = freeNode;
+    height[n] = -1;
+    freeNode = n;
+    nodeCount--;
+  }
+
+  private void grow(int c) {
+    minX = Arrays.copyOf(minX, c);
+    minY = Arrays.copyOf(minY, c);
+    maxX = Arrays.copyOf(maxX, c);
+    maxY = Arrays.copyOf(maxY, c);
+    parent = Arrays.copyOf(parent, c);
+    child1 = Arrays.copyOf(child1, c);
+    child2 = Arrays.copyOf(child2, c);
+    height = Arrays.copyOf(height, c);
+    proxyOf = Arrays.copyOf(proxyOf, c);
+  }
+
+  /**
+   * Insert a leaf next to the sibling with the lowest perimeter cost, the
+   * cost of a subtree is the growth of every ancestor plus the perimeter of
+   * the new parent.
+   */
+  private void insertLeaf(int leaf) {
+    if (root == NULL_NODE) {
+      root = leaf;
+      parent[leaf] = NULL_NODE;
+      return;
+    }
+    int index = root;
+    while (!isLeaf(index)) {
+      float combined = unionPerimeter(index, leaf);
+      float cost = 2f * combined;
+      float inheritance = 2f * (combined - perimeter(index));
+      float cost1 = descendCost(child1[index], leaf) + inheritance;
+      float cost2 = descendCost(child2[index], leaf) + inheritance;
+      if (cost < cost1 && cost < cost2) {
+        break;
+      }
+      index = cost1 < cost2 ? child1[index] : child2[index];
+    }
+    int sibling = index;
+    int oldParent = parent[sibling];
+    int newParent = allocateNode();
+    parent[newParent] = oldParent;
+    setUnion(newParent, sibling, leaf);
+    height[newParent] = height[sibling] + 1;
+    if (oldParent != NULL_NODE) {
+      replaceChild(oldParent, sibling, newParent);
+    } else {
+      root = newParent;
+    }
+    child1[newParent] = sibling;
+    child2[newParent] = leaf;
+    parent[sibling] = newParent;
+    parent[leaf] = newParent;
+    refit(newParent);
+  }
+
+  private float descendCost(int child, int leaf) {
+    float combined = unionPerimeter(child, leaf);
+    return isLeaf(child) ? combined : combined - perimeter(child);
+  }
+
+  private void removeLeaf(int leaf) {
+    if (leaf == root) {
+      root = NULL_NODE;
+      return;
+    }
+    int p = parent[leaf];
+    int grandParent = parent[p];
+    int sibling = child1[p] == leaf ? child2[p] : child1[p];
+    if (grandParent != NULL_NODE) {
+      replaceChild(grandParent, p, sibling);
+      parent[sibling] = grandParent;
+      freeNode(p);
+      refit(grandParent);
+    } else {
+      root = sibling;
+      parent[sibling] = NULL_NODE;
+      freeNode(p);
+    }
+    parent[leaf] = NULL_NODE;
+  }
+
+  private void replaceChild(int p, int oldChild, int newChild) {
+    if (child1[p] == oldChild) {
+      child1[p] = newChild;
+    } else {
+      child2[p] = newChild;
+    }
+  }
+
+  /**
+   * Walk from n to the root, balancing and refitting every node.
+   */
+  private void refit(int n) {
+    int index = n;
+    while (index != NULL_NODE) {
+      index = balance(index);
+      int a = child1[index];
+      int b = child2[index];
+      height[index] = 1 + Math.max(height[a], height[b]);
+      setUnion(index, a, b);
+      index = parent[index];
+    }
+  }
+
+  /**
+   * Rotate the taller child of a up if the heights of its children differ
+   * by more than one.
+   *
+   * @return the node now in the place of a
+   */
+  private int balance(int a) {
+    if (isLeaf(a) || height[a] < 2) {
+      return a;
+    }
+    int b = child1[a];
+    int c = child2[a];
+    int diff = height[c] - height[b];
+    if (diff > 1) {
+      rotate(a, c, b, false);
+      return c;
+    }
+    if (diff < -1) {
+      rotate(a, b, c, true);
+      return b;
+    }
+    return a;
+  }
+
+  /**
+   * Move up the child up of a, a takes the shorter grandchild's place
+   * while the taller grandchild stays below up.
+   *
+   * @param a the unbalanced node
+   * @param up the taller child of a
+   * @param other the shorter child of a
+   * @param upIsFirst true if up is the first child of a
+   */
+  private void rotate(int a, int up, int other, boolean upIsFirst) {
+    int f = child1[up];
+    int g = child2[up];
+    child1[up] = a;
+    parent[up] = parent[a];
+    parent[a] = up;
+    if (parent[up] != NULL_NODE) {
+      replaceChild(parent[up], a, up);
+    } else {
+      root = up;
+    }
+    int keep = height[f] > height[g] ? f : g;
+    int move = keep == f ? g : f;
+    child2[up] = keep;
+    if (upIsFirst) {
+      child1[a] = move;
+    } else {
+      child2[a] = move;
+    }
+    parent[move] = a;
+    setUnion(a, other, move);
+    setUnion(up, a, keep);
+    height[a] = 1 + Math.max(height[other], height[move]);
+    height[up] = 1 + Math.max(height[a], height[keep]);
+  }
+
+  @Override
+  public void render(GameContext gameContext) {
+    for (int n = 0; n < nodeCapacity; n++) {
+      if (height[n] < 0) {
+        continue;
+      }
+      glBegin(GL_LINES);
+      glVertex2f(minX[n], minY[n]);
+      glVertex2f(maxX[n], minY[n]);
+
+      glVertex2f(maxX[n], minY[n]);
+      glVertex2f(maxX[n], maxY[n]);
+
+      glVertex2f(maxX[n], maxY[n]);
+      glVertex2f(minX[n], maxY[n]);
+
+      glVertex2f(minX[n], maxY[n]);
+      glVertex2f(minX[n], minY[n]);
+      glEnd();
+    }
+  }
+}
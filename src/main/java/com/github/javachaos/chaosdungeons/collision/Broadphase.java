@@ -0,0 +1,112 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
+
+/**
+ * A broadphase keeps an axis aligned box for each of its proxies and finds
+ * the proxies whose boxes overlap a query box. Implementations are kept
+ * across physics steps, so only the proxies which moved are updated.
+ *
+ * @param <T> the type of value held by each proxy
+ */
+public interface Broadphase<T> {
+
+  /**
+   * The proxy id used for values which are not in a broadphase.
+   */
+  int NULL_PROXY = -1;
+
+  /**
+   * Called for every proxy found by a query.
+   *
+   * @param <T> the type of value held by each proxy
+   */
+  @FunctionalInterface
+  interface Visitor<T> {
+    void visit(int proxy, T value);
+  }
+
+  /**
+   * Called for every overlapping pair found by {@link #queryPairs}.
+   *
+   * @param <T> the type of value held by each proxy
+   */
+  @FunctionalInterface
+  interface PairVisitor<T> {
+    void visit(T a, T b);
+  }
+
+  /**
+   * Add a new proxy.
+   *
+   * @param value the value of the proxy
+   * @param minX the min x of the box
+   * @param minY the min y of the box
+   * @param maxX the max x of the box
+   * @param maxY the max y of the box
+   * @return the proxy id
+   */
+  int add(T value, float minX, float minY, float maxX, float maxY);
+
+  /**
+   * Set the box of a proxy.
+   *
+   * @param proxy the proxy id
+   * @param minX the min x of the box
+   * @param minY the min y of the box
+   * @param maxX the max x of the box
+   * @param maxY the max y of the box
+   * @return true if the proxy had to be moved within the structure
+   */
+  boolean move(int proxy, float minX, float minY, float maxX, float maxY);
+
+  /**
+   * Remove a proxy, its id may be reused by a later call to add.
+   *
+   * @param proxy the proxy id
+   */
+  void remove(int proxy);
+
+  /**
+   * Get the value of a proxy.
+   *
+   * @param proxy the proxy id
+   * @return the value
+   */
+  T getValue(int proxy);
+
+  /**
+   * Visit every proxy whose box overlaps the query box.
+   *
+   * @param minX the min x of the query box
+   * @param minY the min y of the query box
+   * @param maxX the max x of the query box
+   * @param maxY the max y of the query box
+   * @param visitor called for each overlapping proxy
+   */
+  void query(float minX, float minY, float maxX, float maxY, Visitor<T> visitor);
+
+  /**
+   * Visit every pair of proxies whose boxes overlap, each pair is visited
+   * exactly once in no particular order.
+   *
+   * @param visitor called for each overlapping pair
+   */
+  void queryPairs(PairVisitor<T> visitor);
+
+  /**
+   * Get the number of proxies.
+   *
+   * @return the number of proxies
+   */
+  int size();
+
+  /**
+   * Draw this broadphase for debugging, must be called on the render thread.
+   *
+   * @param gameContext the game context
+   */
+  default void render(GameContext gameContext) {
+    //Unused
+  }
+}
@@ -0,0 +1,164 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import java.util.Arrays;
+
+/**
+ * Storage for the boxes and values of broadphase proxies. Proxy ids are
+ * small integers which are recycled through a free list, and the boxes are
+ * kept in primitive arrays indexed by proxy id.
+ *
+ * @param <T> the type of value held by each proxy
+ */
+public class BroadphaseProxies<T> {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private float[] minX = new float[INITIAL_CAPACITY];
+  private float[] minY = new float[INITIAL_CAPACITY];
+  private float[] maxX = new float[INITIAL_CAPACITY];
+  private float[] maxY = new float[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int[] freeList = new int[INITIAL_CAPACITY];
+  private int freeCount;
+  private int capacity;
+  private int size;
+  private final Broadphase.Visitor<T> pairFilter = this::visitPair;
+  private Broadphase.PairVisitor<T> pairVisitor;
+  private int pairProxy;
+
+  /**
+   * Allocate a proxy.
+   *
+   * @param value the value of the proxy
+   * @return the proxy id
+   */
+  public int allocate(T value, float x0, float y0, float x1, float y1) {
+    int id;
+    if (freeCount > 0) {
+      id = freeList[--freeCount];
+    } else {
+      if (capacity == values.length) {
+        grow(capacity * 2);
+      }
+      id = capacity++;
+    }
+    values[id] = value;
+    set(id, x0, y0, x1, y1);
+    size++;
+    return id;
+  }
+
+  /**
+   * Free a proxy so its id can be reused.
+   *
+   * @param id the proxy id
+   */
+  public void free(int id) {
+    if (values[id] == null) {
+      throw new IllegalArgumentException("Proxy " + id + " is not allocated.");
+    }
+    values[id] = null;
+    if (freeCount == freeList.length) {
+      freeList = Arrays.copyOf(freeList, freeCount * 2);
+    }
+    freeList[freeCount++] = id;
+    size--;
+  }
+
+  public void set(int id, float x0, float y0, float x1, float y1) {
+    minX[id] = x0;
+    minY[id] = y0;
+    maxX[id] = x1;
+    maxY[id] = y1;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T getValue(int id) {
+    return (T) values[id];
+  }
+
+  public boolean isAllocated(int id) {
+    return id >= 0 && id < capacity && values[id] != null;
+  }
+
+  public float getMinX(int id) {
+    return minX[id];
+  }
+
+  public float getMinY(int id) {
+    return minY[id];
+  }
+
+  public float getMaxX(int id) {
+    return maxX[id];
+  }
+
+  public float getMaxY(int id) {
+    return maxY[id];
+  }
+
+  /**
+   * True if the box of the proxy overlaps the given box, touching boxes
+   * overlap.
+   *
+   * @param id the proxy id
+   * @return true if the boxes overlap
+   */
+  public boolean overlaps(int id, float x0, float y0, float x1, float y1) {
+    return minX[id] <= x1 && maxX[id] >= x0 && minY[id] <= y1 && maxY[id] >= y0;
+  }
+
+  /**
+   * The number of allocated proxies.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * One more than the largest proxy id handed out so far.
+   *
+   * @return the capacity in use
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Visit every overlapping pair of proxies by querying the broadphase
+   * holding them with the box of each proxy, for broadphases with no
+   * cheaper way to find pairs.
+   *
+   * @param broadphase the broadphase these proxies belong to
+   * @param visitor called for each overlapping pair
+   */
+  public void queryPairs(Broadphase<T> broadphase, Broadphase.PairVisitor<T> visitor) {
+    pairVisitor = visitor;
+    for (int p = 0; p < capacity; p++) {
+      if (values[p] != null) {
+        pairProxy = p;
+        broadphase.query(minX[p], minY[p], maxX[p], maxY[p], pairFilter);
+      }
+    }
+    pairVisitor = null;
+  }
+
+  /**
+   * Pass on pairs with the higher proxy id, so each pair is visited once.
+   */
+  private void visitPair(int proxy, T value) {
+    if (proxy > pairProxy) {
+      pairVisitor.visit(getValue(pairProxy), value);
+    }
+  }
+
+  private void grow(int c) {
+    minX = Arrays.copyOf(minX, c);
+    minY = Arrays.copyOf(minY, c);
+    maxX = Arrays.copyOf(maxX, c);
+    maxY = Arrays.copyOf(maxY, c);
+    values = Arrays.copyOf(values, c);
+  }
+}
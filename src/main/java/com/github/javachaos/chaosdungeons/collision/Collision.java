@@ -18,6 +18,8 @@ public class Collision implements Comparable<Collision> {
   private Vector2f collisionNormal; // The collision normal vector
   private double penetrationDepth; // The penetration depth of the collision
   private List<Vector2f> contactPoints; // List of contact points (optional)
+  private int[] contactIds = new int[0]; // Feature id of each contact point
+  private float[] contactDepths = new float[0]; // Penetration at each contact point
   private final boolean isColliding;
   private final boolean incomplete;
   private final long currentTimeNanos;
@@ -85,6 +87,34 @@ public class Collision implements Comparable<Collision> {
     this.contactPoints = points;
   }
 
+  /**
+   * Get the feature id of each contact point, an id names the edges and
+   * vertex which made the point, so it stays the same while the shapes
+   * keep touching the same way.
+   *
+   * @return the ids in the order of the contact points
+   */
+  public int[] getContactIds() {
+    return contactIds;
+  }
+
+  public void setContactIds(int[] ids) {
+    this.contactIds = ids;
+  }
+
+  /**
+   * Get the penetration at each contact point.
+   *
+   * @return the depths in the order of the contact points
+   */
+  public float[] getContactDepths() {
+    return contactDepths;
+  }
+
+  public void setContactDepths(float[] depths) {
+    this.contactDepths = depths;
+  }
+
   public Vector2f getCollisionNormal() {
     return collisionNormal;
   }
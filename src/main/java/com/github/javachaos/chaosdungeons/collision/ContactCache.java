@@ -0,0 +1,141 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import java.util.Arrays;
+
+/**
+ * The accumulated impulse of every contact solved in the last step, keyed
+ * by the full generational ids of the two entities of the pair and the
+ * feature id of the contact point within the pair, so a contact which
+ * persists between steps can start from where it left off. An entity which
+ * reuses the slot of a removed one has a new id and so does not inherit its
+ * contacts. Two open addressing tables are
+ * kept, the one filled during this step and the one from the last step
+ * which is read, and {@link #swap()} turns one into the other at the end of
+ * a step.
+ */
+public class ContactCache {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private Table last = new Table();
+  private Table next = new Table();
+
+  /**
+   * Get the impulse stored for a contact in the last step, the ids of the
+   * pair may be given in either order.
+   *
+   * @param a the id of the first entity of the pair
+   * @param b the id of the second entity of the pair
+   * @param id the feature id of the contact point
+   * @return the impulse, zero for a new contact
+   */
+  public float get(long a, long b, int id) {
+    return last.get(Math.min(a, b), Math.max(a, b), id);
+  }
+
+  /**
+   * Store the impulse of a contact for the next step.
+   *
+   * @param a the id of the first entity of the pair
+   * @param b the id of the second entity of the pair
+   * @param id the feature id of the contact point
+   * @param impulse the accumulated impulse
+   */
+  public void put(long a, long b, int id, float impulse) {
+    next.put(Math.min(a, b), Math.max(a, b), id, impulse);
+  }
+
+  /**
+   * End the step, the impulses stored during it become the ones read in
+   * the next step and the older ones are dropped.
+   */
+  public void swap() {
+    Table t = last;
+    last = next;
+    next = t;
+    next.clear();
+  }
+
+  /**
+   * Get the number of contacts readable in this step.
+   *
+   * @return the number of contacts from the last step
+   */
+  public int size() {
+    return last.size;
+  }
+
+  private static final class Table {
+    private long[] firsts = new long[INITIAL_CAPACITY];
+    private long[] seconds = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private float[] values = new float[INITIAL_CAPACITY];
+    // A slot is used in the current generation if its stamp matches.
+    private int[] stamps = new int[INITIAL_CAPACITY];
+    private int generation = 1;
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+
+    float get(long a, long b, int id) {
+      for (int i = slot(a, b, id); stamps[i] == generation; i = (i + 1) & mask) {
+        if (firsts[i] == a && seconds[i] == b && ids[i] == id) {
+          return values[i];
+        }
+      }
+      return 0f;
+    }
+
+    void put(long a, long b, int id, float value) {
+      int i = slot(a, b, id);
+      while (stamps[i] == generation) {
+        if (firsts[i] == a && seconds[i] == b && ids[i] == id) {
+          values[i] = value;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      firsts[i] = a;
+      seconds[i] = b;
+      ids[i] = id;
+      values[i] = value;
+      stamps[i] = generation;
+      if (++size * 2 > firsts.length) {
+        rehash(firsts.length * 2);
+      }
+    }
+
+    void clear() {
+      size = 0;
+      if (++generation == 0) {
+        // The stamps wrapped around, start over from a clean table.
+        Arrays.fill(stamps, 0);
+        generation = 1;
+      }
+    }
+
+    private int slot(long a, long b, int id) {
+      long h = (a * 0x9E3779B97F4A7C15L ^ b ^ (long) id << 40 ^ id) * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ h >>> 32) & mask;
+    }
+
+    private void rehash(int capacity) {
+      long[] oldFirsts = firsts;
+      long[] oldSeconds = seconds;
+      int[] oldIds = ids;
+      float[] oldValues = values;
+      int[] oldStamps = stamps;
+      firsts = new long[capacity];
+      seconds = new long[capacity];
+      ids = new int[capacity];
+      values = new float[capacity];
+      stamps = new int[capacity];
+      mask = capacity - 1;
+      size = 0;
+      for (int i = 0; i < oldFirsts.length; i++) {
+        if (oldStamps[i] == generation) {
+          put(oldFirsts[i], oldSeconds[i], oldIds[i], oldValues[i]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
+import com.github.javachaos.chaosdungeons.ecs.storage.BodyStore;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Contact islands over the bodies of a {@link BodyStore}, rebuilt every
+ * physics step from the pairs handed to the solver. Bodies which touch,
+ * directly or through other bodies, share an island and only go to sleep
+ * together, once every body in the island has been at rest long enough.
+ * Fixed bodies never join islands, so a floor does not tie together every
+ * body resting on it. Sleeping bodies make no contacts, so a body which is
+ * removed must wake what rests on it through {@link #wakeAround}.
+ */
+public class Islands {
+
+  private int[] parent = new int[0];
+  private int[] minRest = new int[0];
+  private int size;
+
+  /**
+   * Start a new step with every body in an island of its own.
+   *
+   * @param bodies the number of bodies in the store
+   */
+  public void reset(int bodies) {
+    if (parent.length < bodies) {
+      int c = Math.max(bodies, parent.length * 2);
+      parent = new int[c];
+      minRest = new int[c];
+    }
+    for (int i = 0; i < bodies; i++) {
+      parent[i] = i;
+    }
+    size = bodies;
+  }
+
+  /**
+   * Join the islands of the bodies a and b.
+   *
+   * @param a the index of the first body
+   * @param b the index of the second body
+   */
+  public void union(int a, int b) {
+    int ra = find(a);
+    int rb = find(b);
+    if (ra != rb) {
+      parent[ra] = rb;
+    }
+  }
+
+  /**
+   * Find the island of body i.
+   *
+   * @param i the index of the body
+   * @return the index of the body representing the island
+   */
+  public int find(int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Put to sleep every island whose bodies have all been at rest for at
+   * least steps steps.
+   *
+   * @param store the bodies
+   * @param steps the number of steps at rest before an island sleeps
+   * @return the number of bodies asleep afterwards
+   */
+  public int sleep(BodyStore store, int steps) {
+    Arrays.fill(minRest, 0, size, Integer.MAX_VALUE);
+    for (int i = 0; i < size; i++) {
+      int r = find(i);
+      minRest[r] = Math.min(minRest[r], store.getRestSteps(i));
+    }
+    int asleep = 0;
+    for (int i = 0; i < size; i++) {
+      if (!store.isAsleep(i) && minRest[find(i)] >= steps) {
+        store.sleep(i);
+      }
+      if (store.isAsleep(i)) {
+        asleep++;
+      }
+    }
+    return asleep;
+  }
+
+  /**
+   * Disturb every body in a broadphase whose box overlaps the given box
+   * grown by margin, used when the body with that box is removed so the
+   * bodies it was holding up do not stay asleep in the air.
+   *
+   * @param broadphase the broadphase holding the bodies
+   * @param minX the min x of the box of the removed body
+   * @param minY the min y of the box of the removed body
+   * @param maxX the max x of the box of the removed body
+   * @param maxY the max y of the box of the removed body
+   * @param margin the distance the box is grown by on every side
+   * @param body gets the body of a broadphase value
+   * @param <T> the type of value held by each proxy
+   */
+  public static <T> void wakeAround(Broadphase<T> broadphase, float minX, float minY,
+                                    float maxX, float maxY, float margin,
+                                    Function<? super T, Body> body) {
+    broadphase.query(minX - margin, minY - margin, maxX + margin, maxY + margin,
+        (proxy, value) -> body.apply(value).disturb());
+  }
+}
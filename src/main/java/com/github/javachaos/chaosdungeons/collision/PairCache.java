@@ -0,0 +1,159 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import java.util.Arrays;
+
+/**
+ * The candidate pairs found by a broadphase in one step. Each pair is keyed
+ * by its two ids packed into a long, min id in the high half, and kept in
+ * an open addressing hash set of primitive longs so a pair reported more
+ * than once is only kept once. Pairs are stored in the order they were
+ * added with the lower id first. Clearing bumps a generation instead of
+ * wiping the table, so a cache which has grown large enough does not
+ * allocate or scan its table between steps.
+ *
+ * @param <T> the type of the paired values
+ */
+public class PairCache<T> {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  // A slot is used in the current generation if its stamp matches.
+  private int[] stamps = new int[INITIAL_CAPACITY];
+  private int generation = 1;
+  private int mask = INITIAL_CAPACITY - 1;
+  private Object[] first = new Object[INITIAL_CAPACITY];
+  private Object[] second = new Object[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Pack two ids into a key, the key is the same for either order.
+   *
+   * @param a the first id
+   * @param b the second id
+   * @return the key
+   */
+  public static long key(int a, int b) {
+    int min = Math.min(a, b);
+    int max = Math.max(a, b);
+    return (long) min << 32 | (max & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Add a pair unless it was already added since the last clear.
+   *
+   * @param idA the id of a
+   * @param a the first value
+   * @param idB the id of b
+   * @param b the second value
+   * @return true if the pair is new, false if it was seen before or both
+   *     ids are the same
+   */
+  public boolean add(int idA, T a, int idB, T b) {
+    if (idA == idB) {
+      return false;
+    }
+    if (!insert(key(idA, idB))) {
+      return false;
+    }
+    if (size == first.length) {
+      first = Arrays.copyOf(first, size * 2);
+      second = Arrays.copyOf(second, size * 2);
+    }
+    first[size] = idA < idB ? a : b;
+    second[size] = idA < idB ? b : a;
+    size++;
+    if (size * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    return true;
+  }
+
+  /**
+   * True if the pair was added since the last clear.
+   *
+   * @param idA the id of a
+   * @param idB the id of b
+   * @return true if the pair is in this cache
+   */
+  public boolean contains(int idA, int idB) {
+    long key = key(idA, idB);
+    for (int i = slot(key); stamps[i] == generation; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the value with the lower id of the pair at index i.
+   *
+   * @param i the index of the pair in insertion order
+   * @return the first value
+   */
+  @SuppressWarnings("unchecked")
+  public T getFirst(int i) {
+    return (T) first[i];
+  }
+
+  /**
+   * Get the value with the higher id of the pair at index i.
+   *
+   * @param i the index of the pair in insertion order
+   * @return the second value
+   */
+  @SuppressWarnings("unchecked")
+  public T getSecond(int i) {
+    return (T) second[i];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove every pair.
+   */
+  public void clear() {
+    Arrays.fill(first, 0, size, null);
+    Arrays.fill(second, 0, size, null);
+    size = 0;
+    if (++generation == 0) {
+      // The stamps wrapped around, start over from a clean table.
+      Arrays.fill(stamps, 0);
+      generation = 1;
+    }
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ h >>> 32) & mask;
+  }
+
+  private boolean insert(long key) {
+    int i = slot(key);
+    while (stamps[i] == generation) {
+      if (keys[i] == key) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    stamps[i] = generation;
+    return true;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldStamps = stamps;
+    keys = new long[capacity];
+    stamps = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldStamps[i] == generation) {
+        insert(oldKeys[i]);
+      }
+    }
+  }
+}
@@ -6,17 +6,31 @@ import com.github.javachaos.chaosdungeons.geometry.polygons.Mesh;
 import com.github.javachaos.chaosdungeons.geometry.polygons.MeshLoader;
 import org.joml.Vector2f;
 
-import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.IntStream;
-import java.util.stream.LongStream;
-import java.util.stream.Stream;
 
 import static com.github.javachaos.chaosdungeons.utils.PrecisionUtils.equalTo;
 import static com.github.javachaos.chaosdungeons.utils.PrecisionUtils.greaterThan;
 import static com.github.javachaos.chaosdungeons.utils.PrecisionUtils.lessThan;
 
+/**
+ * A polygon with its vertices packed into one float array, x and y
+ * interleaved. Vertices are read by index through {@link #getX(int)} and
+ * {@link #getY(int)} for i below {@link #getVertexCount()}, with no locking
+ * or boxing, and {@link #support(float, float)} is a plain loop over the
+ * array. The Point based API is kept on top of this: every vertex added
+ * gets the next key, starting at zero, which {@link #getPoint(long)} and
+ * {@link #remove(long)} take, removing a vertex does not change the keys of
+ * the others. Points returned are copies. A polygon is not safe for
+ * concurrent writes.
+ * The bounds, center and area are cached and only computed again after
+ * vertices are added or removed, a translation shifts the cached bounds
+ * and center.
+ */
 public class Polygon {
 
     public record Bounds(float x, float y, float w, float h) {
@@ -60,56 +74,80 @@ public class Polygon {
             return equalTo(p.x, x, eps) && equalTo(p.y, y, eps);
         }
     }
-    private static final int PAR_THRESHOLD = 1024;
-    private final Map<Long, Point> points;
-    private Point center;
+    private static final int INITIAL_CAPACITY = 4;
+    private float[] coords;
+    // The key of each vertex, ascending since keys are handed out in order.
+    private long[] keys;
+    private int count;
+    private final Point center = new Point();
     private final int capacity;
     private long size;
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+    private Bounds bounds;
+    private float area;
+    private boolean dirty = true;
 
     public Polygon(int numVertices) {
-        this.points = Collections.synchronizedMap(new LinkedHashMap<>(numVertices));
+        int c = Math.max(INITIAL_CAPACITY, numVertices);
+        this.coords = new float[c * 2];
+        this.keys = new long[c];
         this.capacity = numVertices;
-        this.center = new Point();
     }
 
     public Polygon(Set<Point> points) {
-        this.points = Collections.synchronizedMap(new LinkedHashMap<>(points.size()));
-        this.capacity = points.size();
-        if (points.size() > PAR_THRESHOLD) {
-            synchronized (this.points) {
-                getParStream().parallel().forEach(this::addPoint);
-            }
-        } else {
-            for (Point p : points) {
-                addPoint(p);
-            }
+        this(points.size());
+        for (Point p : points) {
+            addPoint(p);
         }
     }
 
     public void addPoint(Point p) {
+        addPoint(p.x, p.y);
+    }
+
+    public void addPoint(float x, float y) {
         if (size > capacity) {
             throw new IllegalArgumentException("No more space.");
         }
-        if (hasVertex(p)) {
+        if (hasVertex(x, y, Point.EPSILON)) {
             throw new IllegalStateException("Point already exists.");
         }
-        if (size == 0) {
-            center = p;
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            coords = Arrays.copyOf(coords, count * 4);
         }
-        points.put(size++, p);
-        this.center = computeCentroid();
-    }
-
-    public void addPoint(float x, float y) {
-        this.addPoint(new Point(x, y));
+        coords[2 * count] = x;
+        coords[2 * count + 1] = y;
+        keys[count++] = size++;
+        dirty = true;
     }
 
+    /**
+     * Remove the vertex with the given key.
+     *
+     * @param remove the key of the vertex
+     * @return the removed vertex or null if there was none
+     */
     public Point remove(long remove) {
-        return points.remove(remove);
+        int i = indexOf(remove);
+        if (i < 0) {
+            return null;
+        }
+        Point p = new Point(coords[2 * i], coords[2 * i + 1]);
+        removeAt(i);
+        return p;
     }
 
     public void remove(Point p) {
-        points.values().remove(p);
+        for (int i = 0; i < count; i++) {
+            if (equalTo(coords[2 * i], p.x, Point.EPSILON) && equalTo(coords[2 * i + 1], p.y, Point.EPSILON)) {
+                removeAt(i);
+                return;
+            }
+        }
     }
 
     public void removeAll(List<Point> pts) {
@@ -117,11 +155,64 @@ public class Polygon {
     }
 
     public Set<Point> getPoints() {
-        return Collections.unmodifiableSet(new LinkedHashSet<>(points.values()));
+        Set<Point> pts = new LinkedHashSet<>(count);
+        for (int i = 0; i < count; i++) {
+            pts.add(new Point(coords[2 * i], coords[2 * i + 1]));
+        }
+        return Collections.unmodifiableSet(pts);
     }
 
+    /**
+     * Get a copy of the vertex with the given key.
+     *
+     * @param i the key of the vertex
+     * @return the vertex or null if there is none
+     */
     public Point getPoint(long i) {
-        return points.get(i);
+        int index = indexOf(i);
+        return index < 0 ? null : new Point(coords[2 * index], coords[2 * index + 1]);
+    }
+
+    /**
+     * Get the number of vertices, removed vertices are not counted.
+     *
+     * @return the vertex count
+     */
+    public int getVertexCount() {
+        return count;
+    }
+
+    public float getX(int i) {
+        return coords[2 * i];
+    }
+
+    public float getY(int i) {
+        return coords[2 * i + 1];
+    }
+
+    /**
+     * Get the index of the vertex furthest in direction (dx, dy), the
+     * first such vertex on ties.
+     *
+     * @param dx the x of the direction
+     * @param dy the y of the direction
+     * @return the vertex index or -1 if this polygon is empty
+     */
+    public int support(float dx, float dy) {
+        if (count == 0) {
+            return -1;
+        }
+        float[] c = coords;
+        int index = 0;
+        float maxDot = dx * c[0] + dy * c[1];
+        for (int i = 1; i < count; i++) {
+            float dot = dx * c[2 * i] + dy * c[2 * i + 1];
+            if (dot > maxDot) {
+                maxDot = dot;
+                index = i;
+            }
+        }
+        return index;
     }
 
     /**
@@ -129,25 +220,13 @@ public class Polygon {
      * @return the center of this polygon as a Point
      */
     public Point computeCentroid() {
-        AtomicReference<Float> x = new AtomicReference<>(0f);
-        AtomicReference<Float> y = new AtomicReference<>(0f);
-        if (points.size() > PAR_THRESHOLD) {
-            synchronized (points) {
-                getParStream().parallel().forEach(p -> {
-                    x.updateAndGet(v -> v + p.x);
-                    y.updateAndGet(v -> v + p.y);
-                });
-            }
-            return new Point(x.getAcquire() / size, y.getAcquire() / size);
-        } else {
-            float xx = 0f;
-            float yy = 0f;
-            for (Point p : points.values()) {
-                xx += p.x;
-                yy += p.y;
-            }
-            return new Point(xx / size, yy / size);
+        float xx = 0f;
+        float yy = 0f;
+        for (int i = 0; i < count; i++) {
+            xx += coords[2 * i];
+            yy += coords[2 * i + 1];
         }
+        return new Point(xx / count, yy / count);
     }
 
     /**
@@ -158,23 +237,28 @@ public class Polygon {
      * @return the position of this polygon
      */
     public Point getCenter() {
+        update();
         return new Point(center);
     }
 
     public void translate(float x, float y) {
-        translate(new Point(x, y));
+        float[] c = coords;
+        for (int i = 0; i < 2 * count; i += 2) {
+            c[i] += x;
+            c[i + 1] += y;
+        }
+        if (!dirty) {
+            minX += x;
+            minY += y;
+            maxX += x;
+            maxY += y;
+            center.add(x, y);
+            bounds = null;
+        }
     }
 
     public void translate(Point newPos) {
-        if (points.size() > PAR_THRESHOLD) {
-            synchronized (points) {
-                getParStream().parallel().forEach(p -> p.add(newPos));
-            }
-        } else {
-            for (Point point : points.values()) {
-                point.add(newPos);
-            }
-        }
+        translate(newPos.x, newPos.y);
     }
 
     public long getSize() {
@@ -196,15 +280,16 @@ public class Polygon {
      * @return true if this polygon has the vertex other
      */
     public boolean hasVertex(Point other, float eps) {
-        AtomicBoolean result = new AtomicBoolean(false);
-        if (points.size() > PAR_THRESHOLD) {
-            synchronized (points) {
-                result.set(getParStream().parallel().anyMatch(x -> x.equals(other, eps)));
+        return hasVertex(other.x, other.y, eps);
+    }
+
+    private boolean hasVertex(float x, float y, float eps) {
+        for (int i = 0; i < count; i++) {
+            if (equalTo(coords[2 * i], x, eps) && equalTo(coords[2 * i + 1], y, eps)) {
+                return true;
             }
-            return result.get();
-        } else {
-            return getSeqSteam().anyMatch(x -> x.equals(other, eps));
         }
+        return false;
     }
 
     /**
@@ -213,79 +298,84 @@ public class Polygon {
      */
     public float computeArea() {
         float determinant = 0.0f;
-        Point first = points.get(0L);
-        if (size > PAR_THRESHOLD) {
-            AtomicReference<Float> det = new AtomicReference<>(0.0f);
-                LongStream.range(0, size).parallel().forEach(i -> {
-                    Point n1 = points.get(i);
-                    Point n2 = points.get(i + 1);
-                    if (n2 == null)
-                        n2 = first;
-                    Point finalN = n2;
-                    det.updateAndGet(v -> (v + n1.x * finalN.y - finalN.x * n1.y));
-                });
-            return det.get() / 2f;
-        } else {
-            for (long i = 0; i < size; i++) {
-                Point n1 = points.get(i);
-                Point n2 = points.get(i + 1);
-                if (n2 == null)
-                    n2 = first;
-                determinant += n1.x * n2.y - n2.x * n1.y;
-            }
-            return determinant / 2f;
+        for (int i = 0; i < count; i++) {
+            int j = i + 1 == count ? 0 : i + 1;
+            determinant += coords[2 * i] * coords[2 * j + 1] - coords[2 * j] * coords[2 * i + 1];
         }
+        return determinant / 2f;
+    }
+
+    /**
+     * Get the area of this polygon, cached until vertices are added or
+     * removed.
+     *
+     * @return the signed area, see {@link #computeArea()}
+     */
+    public float getArea() {
+        update();
+        return area;
     }
 
     public Bounds getBounds() {
-        float maxX = 0.0f;
-        float maxY = 0.0f;
-        float minX = Float.MAX_VALUE;
-        float minY = Float.MAX_VALUE;
-        AtomicReference<Float> armaxY = new AtomicReference<>(maxY);
-        AtomicReference<Float> arminY = new AtomicReference<>(minY);
-        AtomicReference<Float> armaxX = new AtomicReference<>(maxY);
-        AtomicReference<Float> arminX = new AtomicReference<>(minX);
-
-        if (size > PAR_THRESHOLD) {
-            synchronized (points) {
-                getParStream().forEach(p -> {
-                    armaxY.getAndUpdate(lmaxY -> Math.max(lmaxY, p.y));
-                    arminY.getAndUpdate(lminY -> Math.min(lminY, p.y));
-                    armaxX.getAndUpdate(lmaxX -> Math.max(lmaxX, p.x));
-                    arminX.getAndUpdate(lminX -> Math.min(lminX, p.x));
-                });
-            }
-            float x = arminX.get();
-            float y = arminY.get();
-            float w = armaxX.get() - x;
-            float h = armaxY.get() - y;
-            return new Bounds(x, y, w, h);
-        } else {
-            for (Point curr : points.values()) {
-                float x = curr.x();
-                float y = curr.y();
-                maxY = Math.max(maxY, y);
-                minY = Math.min(minY, y);
-                maxX = Math.max(maxX, x);
-                minX = Math.min(minX, x);
-            }
+        update();
+        if (bounds == null) {
+            bounds = new Bounds(minX, minY, maxX - minX, maxY - minY);
         }
+        return bounds;
+    }
 
-        float x = minX;
-        float y = minY;
-        float w = maxX - x;
-        float h = maxY - y;
+    public float getMinX() {
+        update();
+        return minX;
+    }
 
-        return new Bounds(x, y, w, h);
+    public float getMinY() {
+        update();
+        return minY;
     }
 
-    private Stream<Point> getSeqSteam() {
-        return points.values().stream().sequential();
+    public float getMaxX() {
+        update();
+        return maxX;
     }
 
-    private Stream<Point> getParStream() {
-        return points.values().parallelStream();
+    public float getMaxY() {
+        update();
+        return maxY;
+    }
+
+    /**
+     * Compute the cached bounds, center and area if vertices were added or
+     * removed since they were last computed.
+     */
+    private void update() {
+        if (!dirty) {
+            return;
+        }
+        float x0 = Float.MAX_VALUE;
+        float y0 = Float.MAX_VALUE;
+        float x1 = -Float.MAX_VALUE;
+        float y1 = -Float.MAX_VALUE;
+        float sx = 0f;
+        float sy = 0f;
+        for (int i = 0; i < count; i++) {
+            float x = coords[2 * i];
+            float y = coords[2 * i + 1];
+            sx += x;
+            sy += y;
+            x0 = Math.min(x0, x);
+            y0 = Math.min(y0, y);
+            x1 = Math.max(x1, x);
+            y1 = Math.max(y1, y);
+        }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+        bounds = null;
+        center.set(sx / count, sy / count);
+        area = computeArea();
+        dirty = false;
     }
 
     /**
@@ -294,13 +384,8 @@ public class Polygon {
      * @return the mesh
      */
     public Mesh createMesh() {
-        float[] pos = new float[(int) (getSize() * 2)];
-        for (int i = 0; i < pos.length; i += 2) {
-            Point p = getPoint(i / 2);
-            pos[i] = p.x();
-            pos[i + 1] = p.y();
-        }
-        int[] indices = IntStream.range(0, (int) getSize()).toArray();
+        float[] pos = Arrays.copyOf(coords, count * 2);
+        int[] indices = IntStream.range(0, count).toArray();
         return MeshLoader.createMesh(pos, indices, 2);
     }
 
@@ -309,33 +394,16 @@ public class Polygon {
     }
 
     public Set<Edge> getEdges() {
-        if (size <= 1) {
+        if (count <= 1) {
             return Collections.emptySet();
         }
         Set<Edge> e = new LinkedHashSet<>();
-        Point first = points.get(0L);
-        if (size > PAR_THRESHOLD) {
-                LongStream.range(0, size).parallel().forEach(i -> {
-                    synchronized (points) {
-                        Point n1 = points.get(i);
-                        Point n2 = points.get(i + 1);
-                        if (n2 == null) {
-                            n2 = first;
-                        }
-                        e.add(new Edge(n1, n2));
-                    }
-                });
-            return e;
-        } else {
-            for (long i = 0; i < size; i++) {
-                Point n1 = points.get(i);
-                Point n2 = points.get(i + 1);
-                if (n2 == null)
-                    n2 = first;
-                e.add(new Edge(n1, n2));
-            }
-            return e;
+        for (int i = 0; i < count; i++) {
+            int j = i + 1 == count ? 0 : i + 1;
+            e.add(new Edge(new Point(coords[2 * i], coords[2 * i + 1]),
+                    new Point(coords[2 * j], coords[2 * j + 1])));
         }
+        return e;
     }
 
     public Collision checkCollision(Polygon square) {
@@ -344,10 +412,32 @@ public class Polygon {
 
     public Polygon copy() {
         Polygon copy = new Polygon(capacity);
+        copy.coords = Arrays.copyOf(coords, coords.length);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.count = count;
         copy.size = size;
-        copy.points.clear();
-        copy.points.putAll(points);
         return copy;
     }
 
+    /**
+     * Find the index of the vertex with the given key.
+     */
+    private int indexOf(long key) {
+        if (key < 0 || key >= size) {
+            return -1;
+        }
+        // Without removals the key is the index.
+        if (key < count && keys[(int) key] == key) {
+            return (int) key;
+        }
+        int i = Arrays.binarySearch(keys, 0, count, key);
+        return i < 0 ? -1 : i;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(coords, 2 * i + 2, coords, 2 * i, 2 * (count - i - 1));
+        System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+        count--;
+        dirty = true;
+    }
 }
@@ -1,160 +1,369 @@
 package com.github.javachaos.chaosdungeons.collision;
 
-import static com.github.javachaos.chaosdungeons.utils.PrecisionUtils.equalTo;
-import static com.github.javachaos.chaosdungeons.utils.PrecisionUtils.lessThan;
-import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL11.GL_LINES;
+import static org.lwjgl.opengl.GL11.glBegin;
+import static org.lwjgl.opengl.GL11.glEnd;
+import static org.lwjgl.opengl.GL11.glVertex2f;
 
-import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
-import com.github.javachaos.chaosdungeons.geometry.util.ShapeBuilder;
-import com.github.javachaos.chaosdungeons.gui.GameWindow;
-
-import java.util.LinkedList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
-import org.joml.Vector3f;
+import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
 
 /**
- * A simple PR quad tree for collision detection.
+ * A loose quad tree broadphase. Every node covers a region and accepts
+ * boxes which fit its loose bounds, the region grown by half its size on
+ * each side. A proxy is stored in the deepest node whose region holds the
+ * center of its box and whose loose bounds hold the whole box, so boxes
+ * sink to a depth matching their size no matter where they sit.
+ * Leaves are split once they hold more than the node capacity, up to the
+ * maximum depth, and subtrees which become small again are collapsed with
+ * their nodes returned to a pool. The tree is kept across steps and a proxy
+ * is only moved when its box no longer belongs to its node. Proxies whose
+ * box does not fit the root are kept in the root.
+ *
+ * @param <T> the type of value held by each proxy
  */
-public class QuadTree<T> {
+public class QuadTree<T> implements Broadphase<T> {
+
+  static final int NODE_CAPACITY = 8;
+  static final int MAX_DEPTH = 8;
 
   /**
-   * A quadtree node.
+   * A quadtree node covering the region [x, x + w] x [y, y + h].
    */
-  public class Node {
-    double xp;
-    double yp;
-    private Node nw;
-    private Node ne;
-    private Node se;
-    private Node sw;
-    private final T value;
+  private final class Node {
+    private float x;
+    private float y;
+    private float w;
+    private float h;
+    private Node parent;
+    private int depth;
+    private Node[] children;
+    private boolean split;
+    private int[] items = new int[4];
+    private int count;
 
-    public T getValue() {
-      return value;
+    void init(Node parent, float x, float y, float w, float h) {
+      this.parent = parent;
+      this.depth = parent == null ? 0 : parent.depth + 1;
+      this.x = x;
+      this.y = y;
+      this.w = w;
+      this.h = h;
+      this.split = false;
+      this.count = 0;
     }
 
     /**
-     * Create a new Quadtree node.
-     *
-     * @param xp x
-     * @param yp y
-     * @param ge value
+     * True if the box fits the loose bounds of this node.
      */
-    public Node(double xp, double yp, T ge) {
-      this.value = ge;
-      this.xp = xp;
-      this.yp = yp;
+    boolean fits(float x0, float y0, float x1, float y1) {
+      float hw = w / 2f;
+      float hh = h / 2f;
+      return x0 >= x - hw && y0 >= y - hh && x1 <= x + w + hw && y1 <= y + h + hh;
+    }
+
+    boolean overlaps(float x0, float y0, float x1, float y1) {
+      float hw = w / 2f;
+      float hh = h / 2f;
+      return x - hw <= x1 && x + w + hw >= x0 && y - hh <= y1 && y + h + hh >= y0;
+    }
+
+    /**
+     * Get the child whose region holds the center of the box if the box
+     * fits that child.
+     */
+    Node childFor(float x0, float y0, float x1, float y1) {
+      if (!split) {
+        return null;
+      }
+      float cx = (x0 + x1) / 2f;
+      float cy = (y0 + y1) / 2f;
+      int i = (cx < x + w / 2f ? 0 : 1) + (cy < y + h / 2f ? 0 : 2);
+      Node c = children[i];
+      return c.fits(x0, y0, x1, y1) ? c : null;
     }
-  }
 
-  private final Polygon boundary;
+    void add(int proxy) {
+      if (count == items.length) {
+        items = Arrays.copyOf(items, count * 2);
+      }
+      proxySlot[proxy] = count;
+      items[count++] = proxy;
+      proxyNode[proxy] = this;
+    }
+
+    void remove(int proxy) {
+      int slot = proxySlot[proxy];
+      int last = items[--count];
+      items[slot] = last;
+      proxySlot[last] = slot;
+      proxyNode[proxy] = null;
+    }
 
-  private Node root;
+    @SuppressWarnings("unchecked")
+    void split() {
+      if (children == null) {
+        children = new QuadTree.Node[4];
+      }
+      float hw = w / 2f;
+      float hh = h / 2f;
+      children[0] = obtain(this, x, y, hw, hh);
+      children[1] = obtain(this, x + hw, y, hw, hh);
+      children[2] = obtain(this, x, y + hh, hw, hh);
+      children[3] = obtain(this, x + hw, y + hh, hw, hh);
+      split = true;
+      for (int i = count - 1; i >= 0; i--) {
+        int proxy = items[i];
+        Node c = childFor(proxies.getMinX(proxy), proxies.getMinY(proxy),
+            proxies.getMaxX(proxy), proxies.getMaxY(proxy));
+        if (c != null) {
+          remove(proxy);
+          c.add(proxy);
+        }
+      }
+    }
+
+    /**
+     * Move the items of the children into this node and release the
+     * children, only valid when every child is a leaf.
+     */
+    void collapse() {
+      for (Node c : children) {
+        for (int i = c.count - 1; i >= 0; i--) {
+          int proxy = c.items[i];
+          c.remove(proxy);
+          add(proxy);
+        }
+        release(c);
+      }
+      split = false;
+    }
 
-  public QuadTree(float w, float h) {
-    Vector3f pos = GameWindow.getCamera().getPosition();
-    this.boundary = new ShapeBuilder.Rectangle()
-            .setPosition(pos.x, pos.y)
-            .setWidth(w).setHeight(h)
-            .build();
+    /**
+     * The number of items in this node and its children if every child is
+     * a leaf, otherwise a number larger than the node capacity.
+     */
+    int leafTotal() {
+      int total = count;
+      for (Node c : children) {
+        if (c.split) {
+          return Integer.MAX_VALUE;
+        }
+        total += c.count;
+      }
+      return total;
+    }
   }
 
+  private final BroadphaseProxies<T> proxies = new BroadphaseProxies<>();
+  private final Deque<Node> pool = new ArrayDeque<>();
+  private final int nodeCapacity;
+  private final int maxDepth;
+  private final Node root;
+  private Node[] proxyNode = new QuadTree.Node[0];
+  private int[] proxySlot = new int[0];
+  private int nodeCount;
+
   /**
-   * Insert a new value into this quad tree at (x, y).
+   * Create a new quad tree over the region [x, x + w] x [y, y + h].
    *
-   * @param x x pos
-   * @param y y pos
-   * @param value the value
+   * @param x the min x of the region
+   * @param y the min y of the region
+   * @param w the width of the region
+   * @param h the height of the region
    */
-  public void insert(float x, float y, T value) {
-    if (boundary.contains(x, y)) {
-      root = insert(root, x, y, value);
-    }
+  public QuadTree(float x, float y, float w, float h) {
+    this(x, y, w, h, NODE_CAPACITY, MAX_DEPTH);
   }
 
-  private Node insert(Node n, double x, double y, T cc) {
-    if (n == null) {
-      return new Node(x, y, cc);
-    }
-    if (lessThan(x, n.xp) && lessThan(y, n.yp)) {
-      n.sw = insert(n.sw, x, y, cc);
-    } else if (lessThan(x, n.xp) && !lessThan(y, n.yp)) {
-      n.nw = insert(n.nw, x, y, cc);
-    } else if (!lessThan(x, n.xp) && lessThan(y, n.yp)) {
-      n.se = insert(n.se, x, y, cc);
-    } else if (!lessThan(x, n.xp) && !lessThan(y, n.yp)) {
-      n.ne = insert(n.ne, x, y, cc);
+  /**
+   * Create a new quad tree over the region [x, x + w] x [y, y + h].
+   *
+   * @param x the min x of the region
+   * @param y the min y of the region
+   * @param w the width of the region
+   * @param h the height of the region
+   * @param nodeCapacity the number of proxies a leaf holds before it splits
+   * @param maxDepth the depth below which leaves are never split
+   */
+  public QuadTree(float x, float y, float w, float h, int nodeCapacity, int maxDepth) {
+    if (nodeCapacity < 1 || maxDepth < 0) {
+      throw new IllegalArgumentException("Node capacity must be positive and max depth not negative.");
     }
-    return n;
+    this.nodeCapacity = nodeCapacity;
+    this.maxDepth = maxDepth;
+    this.root = obtain(null, x, y, w, h);
   }
 
-  public void render(double w, double h, GameContext gameContext) {
-    render(root, 0, 0, w, h, gameContext);
+  @Override
+  public int add(T value, float minX, float minY, float maxX, float maxY) {
+    int proxy = proxies.allocate(value, minX, minY, maxX, maxY);
+    if (proxy >= proxyNode.length) {
+      int c = Math.max(64, proxyNode.length * 2);
+      proxyNode = Arrays.copyOf(proxyNode, c);
+      proxySlot = Arrays.copyOf(proxySlot, c);
+    }
+    insert(root, proxy);
+    return proxy;
   }
 
-  private void render(Node n, double x, double y, double w, double h, GameContext gameContext) {
-    if (n == null) {
-      return;
+  @Override
+  public boolean move(int proxy, float minX, float minY, float maxX, float maxY) {
+    proxies.set(proxy, minX, minY, maxX, maxY);
+    Node n = proxyNode[proxy];
+    boolean inside = n == root || n.fits(minX, minY, maxX, maxY);
+    if (inside && n.childFor(minX, minY, maxX, maxY) == null) {
+      return false;
     }
+    n.remove(proxy);
+    Node start = n;
+    while (start != root && !start.fits(minX, minY, maxX, maxY)) {
+      start = start.parent;
+    }
+    insert(start, proxy);
+    tryCollapse(n);
+    return true;
+  }
 
-    // Draw rectangle representing the quad
-    glBegin(GL_LINES);
-    glVertex2f((float) x, (float) y);
-    glVertex2f((float) (x + w), (float) y);
+  @Override
+  public void remove(int proxy) {
+    Node n = proxyNode[proxy];
+    n.remove(proxy);
+    proxies.free(proxy);
+    tryCollapse(n);
+  }
 
-    glVertex2f((float) (x + w), (float) y);
-    glVertex2f((float) (x + w), (float) (y + h));
+  @Override
+  public T getValue(int proxy) {
+    return proxies.getValue(proxy);
+  }
 
-    glVertex2f((float) (x + w), (float) (y + h));
-    glVertex2f((float) x, (float) (y + h));
+  @Override
+  public void query(float minX, float minY, float maxX, float maxY, Visitor<T> visitor) {
+    query(root, minX, minY, maxX, maxY, visitor);
+  }
 
-    glVertex2f((float) x, (float) (y + h));
-    glVertex2f((float) x, (float) y);
-    glEnd();
+  @Override
+  public void queryPairs(PairVisitor<T> visitor) {
+    proxies.queryPairs(this, visitor);
+  }
 
-    // Recurse for child nodes
-    double halfWidth = w / 2f;
-    double halfHeight = h / 2f;
+  @Override
+  public int size() {
+    return proxies.size();
+  }
 
-    render(n.nw, x, y, halfWidth, halfHeight, gameContext);
-    render(n.ne, x + halfWidth, y, halfWidth, halfHeight, gameContext);
-    render(n.sw, x, y + halfHeight, halfWidth, halfHeight, gameContext);
-    render(n.se, x + halfWidth, y + halfHeight, halfWidth, halfHeight, gameContext);
+  /**
+   * Get the depth of the node holding a proxy, the root has depth zero.
+   *
+   * @param proxy the proxy id
+   * @return the depth of its node
+   */
+  public int getDepth(int proxy) {
+    return proxyNode[proxy].depth;
   }
 
-  public List<Node> find(Polygon.Bounds q) {
-    return find(new LinkedList<>(), root, q);
+  /**
+   * Get the number of nodes in use, including the root, pooled nodes are
+   * not counted.
+   *
+   * @return the node count
+   */
+  public int getNodeCount() {
+    return nodeCount;
   }
 
-  private List<Node> find(List<Node> nodes, Node n, Polygon.Bounds q) {
-    if (n == null || !boundary.contains(q.x(), q.y())) {
-      return nodes;
+  private void insert(Node start, int proxy) {
+    float x0 = proxies.getMinX(proxy);
+    float y0 = proxies.getMinY(proxy);
+    float x1 = proxies.getMaxX(proxy);
+    float y1 = proxies.getMaxY(proxy);
+    Node n = start;
+    Node c = n.childFor(x0, y0, x1, y1);
+    while (c != null) {
+      n = c;
+      c = n.childFor(x0, y0, x1, y1);
     }
-
-    if (q.contains((float) n.xp, (float) n.yp)) {
-      nodes.add(n);
+    n.add(proxy);
+    if (!n.split && n.count > nodeCapacity && n.depth < maxDepth) {
+      n.split();
     }
+  }
 
-    double xmin = q.x();
-    double ymin = q.y();
-    double xmax = q.w() + q.x();
-    double ymax = q.h() + q.y();
-    if (lessThan(xmin, n.xp) && lessThan(ymin, n.yp)) {
-      find(nodes, n.sw, q);
+  /**
+   * Collapse the parent of n, and its ancestors, while their subtrees hold
+   * no more than half the node capacity, the gap to the split threshold
+   * keeps a node from splitting and collapsing on every other step.
+   */
+  private void tryCollapse(Node n) {
+    Node p = n.split ? n : n.parent;
+    while (p != null && p.leafTotal() <= nodeCapacity / 2) {
+      p.collapse();
+      p = p.parent;
     }
-    if (lessThan(xmin, n.xp) && !(lessThan(ymax, n.yp) || equalTo(ymax, n.yp))) {
-      find(nodes, n.nw, q);
+  }
+
+  private Node obtain(Node parent, float x, float y, float w, float h) {
+    Node n = pool.poll();
+    if (n == null) {
+      n = new Node();
     }
-    if (!(lessThan(xmax, n.xp) || equalTo(xmax, n.xp)) && lessThan(ymax, n.yp)) {
-      find(nodes, n.se, q);
+    n.init(parent, x, y, w, h);
+    nodeCount++;
+    return n;
+  }
+
+  private void release(Node n) {
+    n.parent = null;
+    pool.push(n);
+    nodeCount--;
+  }
+
+  private void query(Node n, float x0, float y0, float x1, float y1, Visitor<T> visitor) {
+    for (int i = 0; i < n.count; i++) {
+      int proxy = n.items[i];
+      if (proxies.overlaps(proxy, x0, y0, x1, y1)) {
+        visitor.visit(proxy, proxies.getValue(proxy));
+      }
     }
-    if (!(lessThan(xmax, n.xp) || equalTo(xmax, n.xp))
-        && !(lessThan(ymax, n.yp) || equalTo(ymax, n.yp))) {
-      find(nodes, n.ne, q);
+    if (n.split) {
+      for (Node c : n.children) {
+        if (c.overlaps(x0, y0, x1, y1)) {
+          query(c, x0, y0, x1, y1, visitor);
+        }
+      }
     }
+  }
 
-    return nodes; // Handle case when no conditions match
+  @Override
+  public void render(GameContext gameContext) {
+    render(root);
   }
 
+  private void render(Node n) {
+    // Draw rectangle representing the quad
+    glBegin(GL_LINES);
+    glVertex2f(n.x, n.y);
+    glVertex2f(n.x + n.w, n.y);
+
+    glVertex2f(n.x + n.w, n.y);
+    glVertex2f(n.x + n.w, n.y + n.h);
+
+    glVertex2f(n.x + n.w, n.y + n.h);
+    glVertex2f(n.x, n.y + n.h);
+
+    glVertex2f(n.x, n.y + n.h);
+    glVertex2f(n.x, n.y);
+    glEnd();
+
+    // Recurse for child nodes
+    if (n.split) {
+      for (Node c : n.children) {
+        render(c);
+      }
+    }
+  }
 }
@@ -1,79 +1,458 @@
 package com.github.javachaos.chaosdungeons.collision;
 
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.joml.Vector2f;
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
+import com.github.javachaos.chaosdungeons.ecs.storage.RangeTask;
 
-import java.util.Collections;
-import java.util.Deque;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 /**
- * A simple collision solver.
+ * A sequential impulse contact solver. Each contact point keeps an
+ * accumulated normal impulse, clamped so contacts only push, which is
+ * refined over a number of iterations across all contacts. The impulse of
+ * every contact is cached by the entity ids of its pair and its feature id
+ * and applied up front in the next step (warm starting), so resting
+ * contacts start close to their solution and need few iterations. Penetration is removed by a
+ * separate position pass, which moves the bodies apart without adding any
+ * velocity, the points of one manifold share the correction of the pair.
+ * Contacts are held in parallel arrays filled on the physics thread.
+ * Large sets of contacts are graph colored into batches in which no two
+ * contacts move the same body, each batch is then solved across a pool
+ * without locks, and the result does not depend on the number of threads.
+ * Bodies which the solver does not move, with an inverse mass of zero, may
+ * be shared within a batch. All bodies must come from the same store.
  */
 public class Solver {
-    private static final Logger LOGGER = LogManager.getLogger(Solver.class);
-    private final Set<Collision> collisions = Collections.synchronizedSet(new ConcurrentSkipListSet<>());
-    private final Deque<Collision> resolved = new ConcurrentLinkedDeque<>();
 
-    private static final int THRESHOLD = 1000;
+    /**
+     * The number of velocity iterations used by {@link #Solver()}.
+     */
+    public static final int DEFAULT_ITERATIONS = 8;
 
-    public void solve() {
-      if (collisions.size() >= THRESHOLD) {
-          synchronized (collisions) {
-              collisions.stream().parallel().forEach(c -> {
-                  resolve(c);
-                  resolved.push(c);
-              });
-          }
-          resolved.stream().parallel().forEach(collisions::remove);
-      } else {
-          for (Collision c : collisions) {
-            resolve(c);
-            resolved.push(c);
-        }
-        resolved.forEach(collisions::remove);
+    // The fraction of the penetration removed in one step.
+    private static final float BAUMGARTE = 0.2f;
+    // Penetration allowed to remain so resting contacts stay touching.
+    private static final float SLOP = 0.01f;
+    // Slower approaches do not bounce, so resting bodies settle.
+    private static final float RESTITUTION_THRESHOLD = 1f;
+    private static final int INITIAL_CAPACITY = 64;
+    // Fewer contacts are solved in order on the calling thread.
+    private static final int PARALLEL_THRESHOLD = 1000;
+    private static final int CHUNK_SIZE = 128;
+    // Contacts which find every color taken go in one last batch solved
+    // on the calling thread.
+    private static final int MAX_COLORS = 64;
+
+    private final int iterations;
+    private final ForkJoinPool pool;
+    private final IntConsumer prepare = this::prepare;
+    private final IntConsumer solveVelocity = this::solveVelocity;
+    private final IntConsumer solvePosition = this::solvePosition;
+    private final ContactCache cache = new ContactCache();
+    private Body[] bodyA = new Body[INITIAL_CAPACITY];
+    private Body[] bodyB = new Body[INITIAL_CAPACITY];
+    private long[] firstIds = new long[INITIAL_CAPACITY];
+    private long[] secondIds = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private float[] invMassA = new float[INITIAL_CAPACITY];
+    private float[] invMassB = new float[INITIAL_CAPACITY];
+    private float[] nx = new float[INITIAL_CAPACITY];
+    private float[] ny = new float[INITIAL_CAPACITY];
+    private float[] depth = new float[INITIAL_CAPACITY];
+    // The fraction of the position correction of a pair given to a contact.
+    private float[] share = new float[INITIAL_CAPACITY];
+    private float[] restitution = new float[INITIAL_CAPACITY];
+    private float[] normalMass = new float[INITIAL_CAPACITY];
+    private float[] bias = new float[INITIAL_CAPACITY];
+    private float[] impulse = new float[INITIAL_CAPACITY];
+    private int count;
+    // The contacts ordered by color, the batch of color c is the range
+    // [batchStart[c], batchStart[c + 1]) of order.
+    private int[] order = new int[INITIAL_CAPACITY];
+    private int[] colorOf = new int[INITIAL_CAPACITY];
+    private final int[] batchStart = new int[MAX_COLORS + 2];
+    private final int[] cursor = new int[MAX_COLORS + 1];
+    // The colors used by each body, by body index, while coloring.
+    private long[] bodyColors = new long[INITIAL_CAPACITY];
+
+    public Solver() {
+        this(DEFAULT_ITERATIONS);
     }
+
+    /**
+     * Create a new solver which solves large sets of contacts on the common
+     * pool.
+     *
+     * @param iterations the number of velocity iterations per step
+     */
+    public Solver(int iterations) {
+        this(iterations, ForkJoinPool.commonPool());
     }
 
-    public void addCollision(Collision c) {
-        if (c.getColliders().getKey().getEntityId() != c.getColliders().getValue().getEntityId()) {
-            collisions.add(c);
+    /**
+     * Create a new solver.
+     *
+     * @param iterations the number of velocity iterations per step
+     * @param pool the pool large sets of contacts are solved on
+     */
+    public Solver(int iterations, ForkJoinPool pool) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Solver needs at least one iteration.");
         }
+        this.iterations = iterations;
+        this.pool = pool;
+    }
+
+    public int getIterations() {
+        return iterations;
     }
 
     /**
-     * Resolve this collision.
+     * Add a contact for each point of the manifold of a collision between
+     * two entities, or a single contact at the collision depth if it has no
+     * manifold. Entities which are not dynamic, or have a fixed body, are
+     * not moved by the solver.
+     *
+     * @param c the collision, the normal points from the first collider to
+     *          the second
      */
-    private void resolve(Collision c) {
-        // This should work, need to test and getCollisionNormal() and getVelocity()
+    public void addCollision(Collision c) {
         GameEntity e1 = c.getColliders().getKey();
         GameEntity e2 = c.getColliders().getValue();
-        Vector2f impulseDirection = c.getCollisionNormal();
-        Vector2f v1 = new Vector2f(e2.getPhysicsComponent().getVelocity());
-        Vector2f v2 = new Vector2f((e1.getPhysicsComponent().getVelocity()));
+        if (e1.getEntityId() == e2.getEntityId()) {
+            return;
+        }
+        Body a = e1.getPhysicsComponent().getBody();
+        Body b = e2.getPhysicsComponent().getBody();
+        long first = e1.getEntityId();
+        long second = e2.getEntityId();
+        float ma = e1.isDynamic() ? a.getInvMass() : 0f;
+        float mb = e2.isDynamic() ? b.getInvMass() : 0f;
+        float nx = c.getCollisionNormal().x;
+        float ny = c.getCollisionNormal().y;
+        float e = Math.min(a.getRestitution(), b.getRestitution());
+        int[] ids = c.getContactIds();
+        float[] depths = c.getContactDepths();
+        if (ids.length == 0) {
+            addContact(first, second, 0, a, ma, b, mb, nx, ny, (float) c.getPenetrationDepth(), e);
+            return;
+        }
+        float n = 1f / ids.length;
+        for (int k = 0; k < ids.length; k++) {
+            addContact(first, second, ids[k], a, ma, b, mb, nx, ny, depths[k], e, n);
+        }
+    }
+
+    /**
+     * Add a contact between the bodies a and b.
+     *
+     * @param first the entity id of the first body, used with second and
+     *              id to warm start the contact if it is still there in
+     *              the next step
+     * @param second the entity id of the second body
+     * @param id the feature id of the contact point within the pair
+     * @param a the first body
+     * @param invMassA the inverse mass of a, zero if it must not move
+     * @param b the second body
+     * @param invMassB the inverse mass of b, zero if it must not move
+     * @param normalX the x of the unit normal pointing from a to b
+     * @param normalY the y of the unit normal pointing from a to b
+     * @param penetration the penetration depth
+     * @param e the restitution of the contact
+     */
+    public void addContact(long first, long second, int id, Body a, float invMassA, Body b,
+                           float invMassB, float normalX, float normalY, float penetration,
+                           float e) {
+        addContact(first, second, id, a, invMassA, b, invMassB, normalX, normalY, penetration, e,
+                1f);
+    }
+
+    /**
+     * Add a contact which gets only a fraction of the position correction,
+     * as one of the points of a manifold.
+     *
+     * @param fraction the share of the correction of the pair
+     */
+    void addContact(long first, long second, int id, Body a, float invMassA, Body b,
+                    float invMassB, float normalX, float normalY, float penetration, float e,
+                    float fraction) {
+        if (a.isFixed()) {
+            invMassA = 0f;
+        }
+        if (b.isFixed()) {
+            invMassB = 0f;
+        }
+        if (invMassA + invMassB == 0f) {
+            return;
+        }
+        if (count == ids.length) {
+            grow(count * 2);
+        }
+        int i = count++;
+        firstIds[i] = first;
+        secondIds[i] = second;
+        ids[i] = id;
+        bodyA[i] = a;
+        bodyB[i] = b;
+        this.invMassA[i] = invMassA;
+        this.invMassB[i] = invMassB;
+        nx[i] = normalX;
+        ny[i] = normalY;
+        depth[i] = penetration;
+        share[i] = fraction;
+        restitution[i] = e;
+    }
+
+    public int getContactCount() {
+        return count;
+    }
+
+    /**
+     * Get the first body of a contact waiting to be solved, valid until
+     * {@link #solve()}.
+     *
+     * @param i the index of the contact
+     * @return the first body
+     */
+    public Body getBodyA(int i) {
+        return bodyA[i];
+    }
+
+    /**
+     * Get the second body of a contact waiting to be solved, valid until
+     * {@link #solve()}.
+     *
+     * @param i the index of the contact
+     * @return the second body
+     */
+    public Body getBodyB(int i) {
+        return bodyB[i];
+    }
+
+    /**
+     * Get the accumulated impulse of a contact from the last solve.
+     *
+     * @param first the entity id of one body of the pair
+     * @param second the entity id of the other body of the pair
+     * @param id the feature id of the contact point
+     * @return the impulse, zero if there was no such contact
+     */
+    public float getCachedImpulse(long first, long second, int id) {
+        return cache.get(first, second, id);
+    }
+
+    /**
+     * Solve every contact added since the last solve, then remove them.
+     */
+    public void solve() {
+        if (count >= PARALLEL_THRESHOLD) {
+            color();
+            forEachBatch(prepare);
+            for (int it = 0; it < iterations; it++) {
+                forEachBatch(solveVelocity);
+            }
+            forEachBatch(solvePosition);
+        } else {
+            for (int i = 0; i < count; i++) {
+                prepare(i);
+            }
+            for (int it = 0; it < iterations; it++) {
+                for (int i = 0; i < count; i++) {
+                    solveVelocity(i);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                solvePosition(i);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            cache.put(firstIds[i], secondIds[i], ids[i], impulse[i]);
+        }
+        cache.swap();
+        Arrays.fill(bodyA, 0, count, null);
+        Arrays.fill(bodyB, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Get the number of batches the last large solve was split into.
+     *
+     * @return the number of colors used
+     */
+    public int getBatchCount() {
+        int n = 0;
+        for (int c = 0; c <= MAX_COLORS; c++) {
+            if (batchStart[c + 1] > batchStart[c]) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Greedy coloring, each contact takes the lowest color used by neither
+     * of the bodies it moves, then the contacts are sorted by color.
+     */
+    private void color() {
+        Arrays.fill(batchStart, 0);
+        for (int i = 0; i < count; i++) {
+            int ia = bodyA[i].getIndex();
+            int ib = bodyB[i].getIndex();
+            int max = Math.max(ia, ib);
+            if (max >= bodyColors.length) {
+                bodyColors = Arrays.copyOf(bodyColors, Math.max(max + 1, bodyColors.length * 2));
+            }
+            long used = 0L;
+            if (invMassA[i] != 0f) {
+                used |= bodyColors[ia];
+            }
+            if (invMassB[i] != 0f) {
+                used |= bodyColors[ib];
+            }
+            // 64 when every color is taken, the last batch.
+            int c = Long.numberOfTrailingZeros(~used);
+            if (c < MAX_COLORS) {
+                long bit = 1L << c;
+                if (invMassA[i] != 0f) {
+                    bodyColors[ia] |= bit;
+                }
+                if (invMassB[i] != 0f) {
+                    bodyColors[ib] |= bit;
+                }
+            }
+            colorOf[i] = c;
+            batchStart[c + 1]++;
+        }
+        for (int c = 0; c <= MAX_COLORS; c++) {
+            batchStart[c + 1] += batchStart[c];
+            cursor[c] = batchStart[c];
+        }
+        for (int i = 0; i < count; i++) {
+            order[cursor[colorOf[i]]++] = i;
+            bodyColors[bodyA[i].getIndex()] = 0L;
+            bodyColors[bodyB[i].getIndex()] = 0L;
+        }
+    }
+
+    /**
+     * Run phase over every contact batch by batch, batches large enough
+     * are split across the pool.
+     */
+    private void forEachBatch(IntConsumer phase) {
+        for (int c = 0; c <= MAX_COLORS; c++) {
+            int from = batchStart[c];
+            int to = batchStart[c + 1];
+            if (c < MAX_COLORS && to - from > CHUNK_SIZE) {
+                pool.invoke(new RangeTask((f, t) -> runBatch(phase, f, t), from, to, CHUNK_SIZE));
+            } else {
+                runBatch(phase, from, to);
+            }
+        }
+    }
 
-        float relativeVdotn = v1.sub(v2).dot(impulseDirection);
-        double m1 = e1.getPhysicsComponent().getInvMass();
-        double m2 = e2.getPhysicsComponent().getInvMass();
-        double re1 = e1.getPhysicsComponent().getRestitution();
-        double re2 = e2.getPhysicsComponent().getRestitution();
-        double finalR = Math.min(re2, re1);
+    private void runBatch(IntConsumer phase, int from, int to) {
+        for (int k = from; k < to; k++) {
+            phase.accept(order[k]);
+        }
+    }
 
-        double impulseMagnitude = (-(1 + finalR) * relativeVdotn) / (m1+m2);//calculate impulse magnitude
+    /**
+     * Compute the effective mass and bounce of contact i and warm start it
+     * with its impulse from the last step.
+     */
+    private void prepare(int i) {
+        Body a = bodyA[i];
+        Body b = bodyB[i];
+        float ma = invMassA[i];
+        float mb = invMassB[i];
+        normalMass[i] = 1f / (ma + mb);
+        float vn = (b.getVx() - a.getVx()) * nx[i] + (b.getVy() - a.getVy()) * ny[i];
+        bias[i] = vn < -RESTITUTION_THRESHOLD ? -restitution[i] * vn : 0f;
+        float p = cache.get(firstIds[i], secondIds[i], ids[i]);
+        impulse[i] = p;
+        if (p != 0f) {
+            push(i, nx[i] * p, ny[i] * p);
+        }
+    }
+
+    private void solveVelocity(int i) {
+        Body a = bodyA[i];
+        Body b = bodyB[i];
+        float vn = (b.getVx() - a.getVx()) * nx[i] + (b.getVy() - a.getVy()) * ny[i];
+        float lambda = normalMass[i] * (bias[i] - vn);
+        // Clamp the total, not the increment, so a contact can give back
+        // impulse it was given in an earlier iteration.
+        float old = impulse[i];
+        impulse[i] = Math.max(old + lambda, 0f);
+        lambda = impulse[i] - old;
+        if (lambda == 0f) {
+            return;
+        }
+        push(i, nx[i] * lambda, ny[i] * lambda);
+    }
 
-        //Compute new velocities
-        Vector2f j = impulseDirection.mul((float) impulseMagnitude);
+    /**
+     * Apply the impulse (px, py) to the second body of contact i and its
+     * opposite to the first. A body the solver does not move is not written,
+     * so it may be shared by contacts solved at the same time.
+     */
+    private void push(int i, float px, float py) {
+        float ma = invMassA[i];
+        float mb = invMassB[i];
+        if (ma != 0f) {
+            Body a = bodyA[i];
+            a.setVelocity(a.getVx() - px * ma, a.getVy() - py * ma);
+        }
+        if (mb != 0f) {
+            Body b = bodyB[i];
+            b.setVelocity(b.getVx() + px * mb, b.getVy() + py * mb);
+        }
+    }
 
-        if (e1.isDynamic()) {
-            e1.getPhysicsComponent().applyImpulse(j);
+    /**
+     * Move the bodies of contact i apart by a fraction of the penetration
+     * beyond the slop, scaled by the share of the contact in its manifold
+     * and split by inverse mass.
+     */
+    private void solvePosition(int i) {
+        float c = depth[i] - SLOP;
+        if (c <= 0f) {
+            return;
+        }
+        float correction = BAUMGARTE * c * share[i] * normalMass[i];
+        float px = nx[i] * correction;
+        float py = ny[i] * correction;
+        float ma = invMassA[i];
+        float mb = invMassB[i];
+        if (ma != 0f) {
+            Body a = bodyA[i];
+            a.setPosition(a.getX() - px * ma, a.getY() - py * ma);
         }
-        if (e2.isDynamic()) {
-            e2.getPhysicsComponent().applyImpulse(j.mul(-1f));
+        if (mb != 0f) {
+            Body b = bodyB[i];
+            b.setPosition(b.getX() + px * mb, b.getY() + py * mb);
         }
-        LOGGER.debug("Resolved: {} and {}. ", e1.getEntityId(), e2.getEntityId());
+    }
+
+    private void grow(int capacity) {
+        bodyA = Arrays.copyOf(bodyA, capacity);
+        bodyB = Arrays.copyOf(bodyB, capacity);
+        firstIds = Arrays.copyOf(firstIds, capacity);
+        secondIds = Arrays.copyOf(secondIds, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        invMassA = Arrays.copyOf(invMassA, capacity);
+        invMassB = Arrays.copyOf(invMassB, capacity);
+        nx = Arrays.copyOf(nx, capacity);
+        ny = Arrays.copyOf(ny, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+        share = Arrays.copyOf(share, capacity);
+        restitution = Arrays.copyOf(restitution, capacity);
+        normalMass = Arrays.copyOf(normalMass, capacity);
+        bias = Arrays.copyOf(bias, capacity);
+        impulse = Arrays.copyOf(impulse, capacity);
+        order = Arrays.copyOf(order, capacity);
+        colorOf = Arrays.copyOf(colorOf, capacity);
     }
 }
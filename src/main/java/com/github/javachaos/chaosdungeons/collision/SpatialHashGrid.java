@@ -0,0 +1,279 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid broadphase for bodies of about the same size. The plane is
+ * split into square cells which are hashed into a table of buckets, so the
+ * grid has no bounds. Each proxy has an entry in every cell its box touches
+ * and is only relinked when that range of cells changes. Entries, buckets
+ * and proxy cell ranges are kept in primitive arrays and recycled, so a
+ * step which adds no proxies does not allocate.
+ * A pair sharing several cells is only visited in the cell holding the min
+ * corner of the overlap of their cell ranges, which needs no visited set.
+ *
+ * @param <T> the type of value held by each proxy
+ */
+public class SpatialHashGrid<T> implements Broadphase<T> {
+
+  static final float DEFAULT_CELL_SIZE = 32f;
+  private static final int INITIAL_BUCKETS = 1024;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int NULL_ENTRY = -1;
+
+  private final BroadphaseProxies<T> proxies = new BroadphaseProxies<>();
+  private final float cellSize;
+  private final float invCellSize;
+  private int[] buckets = new int[INITIAL_BUCKETS];
+  private int mask = INITIAL_BUCKETS - 1;
+  // Entries are linked twice, within a bucket and within a proxy.
+  private int[] entryProxy = new int[INITIAL_CAPACITY];
+  private int[] entryCellX = new int[INITIAL_CAPACITY];
+  private int[] entryCellY = new int[INITIAL_CAPACITY];
+  private int[] entryNext = new int[INITIAL_CAPACITY];
+  private int[] entryPrev = new int[INITIAL_CAPACITY];
+  private int[] entryNextOfProxy = new int[INITIAL_CAPACITY];
+  private int entryCapacity;
+  private int entryCount;
+  private int freeEntry = NULL_ENTRY;
+  private int[] firstEntry = new int[INITIAL_CAPACITY];
+  private int[] cellX0 = new int[INITIAL_CAPACITY];
+  private int[] cellY0 = new int[INITIAL_CAPACITY];
+  private int[] cellX1 = new int[INITIAL_CAPACITY];
+  private int[] cellY1 = new int[INITIAL_CAPACITY];
+
+  /**
+   * Create a new grid with the default cell size.
+   */
+  public SpatialHashGrid() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Create a new grid.
+   *
+   * @param cellSize the width and height of a cell, about the size of the
+   *     largest common body
+   */
+  public SpatialHashGrid(float cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive.");
+    }
+    this.cellSize = cellSize;
+    this.invCellSize = 1f / cellSize;
+    Arrays.fill(buckets, NULL_ENTRY);
+  }
+
+  @Override
+  public int add(T value, float minX, float minY, float maxX, float maxY) {
+    int proxy = proxies.allocate(value, minX, minY, maxX, maxY);
+    if (proxy >= firstEntry.length) {
+      int c = firstEntry.length * 2;
+      firstEntry = Arrays.copyOf(firstEntry, c);
+      cellX0 = Arrays.copyOf(cellX0, c);
+      cellY0 = Arrays.copyOf(cellY0, c);
+      cellX1 = Arrays.copyOf(cellX1, c);
+      cellY1 = Arrays.copyOf(cellY1, c);
+    }
+    link(proxy);
+    return proxy;
+  }
+
+  @Override
+  public boolean move(int proxy, float minX, float minY, float maxX, float maxY) {
+    proxies.set(proxy, minX, minY, maxX, maxY);
+    if (cellX0[proxy] == cell(minX) && cellY0[proxy] == cell(minY)
+        && cellX1[proxy] == cell(maxX) && cellY1[proxy] == cell(maxY)) {
+      return false;
+    }
+    unlink(proxy);
+    link(proxy);
+    return true;
+  }
+
+  @Override
+  public void remove(int proxy) {
+    unlink(proxy);
+    proxies.free(proxy);
+  }
+
+  @Override
+  public T getValue(int proxy) {
+    return proxies.getValue(proxy);
+  }
+
+  @Override
+  public void query(float minX, float minY, float maxX, float maxY, Visitor<T> visitor) {
+    int x0 = cell(minX);
+    int y0 = cell(minY);
+    int x1 = cell(maxX);
+    int y1 = cell(maxY);
+    if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > buckets.length) {
+      // Walking every bucket is cheaper than a range this large.
+      for (int b = 0; b < buckets.length; b++) {
+        queryBucket(b, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE,
+            Integer.MAX_VALUE, x0, y0, minX, minY, maxX, maxY, visitor);
+      }
+      return;
+    }
+    for (int cy = y0; cy <= y1; cy++) {
+      for (int cx = x0; cx <= x1; cx++) {
+        queryBucket(hash(cx, cy), cx, cy, cx, cy, x0, y0, minX, minY, maxX, maxY, visitor);
+      }
+    }
+  }
+
+  /**
+   * Visit the proxies in a bucket whose entry cell lies in [cx0, cx1] x
+   * [cy0, cy1], each proxy is only visited from one cell of the query.
+   */
+  private void queryBucket(int bucket, int cx0, int cy0, int cx1, int cy1, int x0, int y0,
+                           float minX, float minY, float maxX, float maxY, Visitor<T> visitor) {
+    for (int e = buckets[bucket]; e != NULL_ENTRY; e = entryNext[e]) {
+      int cx = entryCellX[e];
+      int cy = entryCellY[e];
+      if (cx < cx0 || cx > cx1 || cy < cy0 || cy > cy1) {
+        continue;
+      }
+      int proxy = entryProxy[e];
+      if (cx == Math.max(x0, cellX0[proxy]) && cy == Math.max(y0, cellY0[proxy])
+          && proxies.overlaps(proxy, minX, minY, maxX, maxY)) {
+        visitor.visit(proxy, proxies.getValue(proxy));
+      }
+    }
+  }
+
+  @Override
+  public void queryPairs(PairVisitor<T> visitor) {
+    for (int b = 0; b < buckets.length; b++) {
+      for (int e = buckets[b]; e != NULL_ENTRY; e = entryNext[e]) {
+        int p = entryProxy[e];
+        int cx = entryCellX[e];
+        int cy = entryCellY[e];
+        for (int f = entryNext[e]; f != NULL_ENTRY; f = entryNext[f]) {
+          int q = entryProxy[f];
+          if (entryCellX[f] != cx || entryCellY[f] != cy
+              || cx != Math.max(cellX0[p], cellX0[q]) || cy != Math.max(cellY0[p], cellY0[q])) {
+            continue;
+          }
+          if (proxies.overlaps(q, proxies.getMinX(p), proxies.getMinY(p),
+              proxies.getMaxX(p), proxies.getMaxY(p))) {
+            visitor.visit(proxies.getValue(p), proxies.getValue(q));
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return proxies.size();
+  }
+
+  /**
+   * Get the width and height of a cell.
+   *
+   * @return the cell size
+   */
+  public float getCellSize() {
+    return cellSize;
+  }
+
+  private int cell(float v) {
+    return (int) Math.floor(v * invCellSize);
+  }
+
+  private int hash(int cx, int cy) {
+    return (cx * 73856093 ^ cy * 19349663) & mask;
+  }
+
+  private void link(int proxy) {
+    int x0 = cell(proxies.getMinX(proxy));
+    int y0 = cell(proxies.getMinY(proxy));
+    int x1 = cell(proxies.getMaxX(proxy));
+    int y1 = cell(proxies.getMaxY(proxy));
+    cellX0[proxy] = x0;
+    cellY0[proxy] = y0;
+    cellX1[proxy] = x1;
+    cellY1[proxy] = y1;
+    firstEntry[proxy] = NULL_ENTRY;
+    for (int cy = y0; cy <= y1; cy++) {
+      for (int cx = x0; cx <= x1; cx++) {
+        int e = allocateEntry();
+        entryProxy[e] = proxy;
+        entryCellX[e] = cx;
+        entryCellY[e] = cy;
+        entryNextOfProxy[e] = firstEntry[proxy];
+        firstEntry[proxy] = e;
+        pushBucket(hash(cx, cy), e);
+      }
+    }
+    if (entryCount > buckets.length * 2) {
+      rehash(buckets.length * 2);
+    }
+  }
+
+  private void unlink(int proxy) {
+    int e = firstEntry[proxy];
+    while (e != NULL_ENTRY) {
+      int next = entryNextOfProxy[e];
+      int prev = entryPrev[e];
+      if (prev == NULL_ENTRY) {
+        buckets[hash(entryCellX[e], entryCellY[e])] = entryNext[e];
+      } else {
+        entryNext[prev] = entryNext[e];
+      }
+      if (entryNext[e] != NULL_ENTRY) {
+        entryPrev[entryNext[e]] = prev;
+      }
+      entryProxy[e] = NULL_PROXY;
+      entryNext[e] = freeEntry;
+      freeEntry = e;
+      entryCount--;
+      e = next;
+    }
+    firstEntry[proxy] = NULL_ENTRY;
+  }
+
+  private void pushBucket(int bucket, int e) {
+    int head = buckets[bucket];
+    entryNext[e] = head;
+    entryPrev[e] = NULL_ENTRY;
+    if (head != NULL_ENTRY) {
+      entryPrev[head] = e;
+    }
+    buckets[bucket] = e;
+  }
+
+  private int allocateEntry() {
+    int e;
+    if (freeEntry != NULL_ENTRY) {
+      e = freeEntry;
+      freeEntry = entryNext[e];
+    } else {
+      if (entryCapacity == entryProxy.length) {
+        int c = entryCapacity * 2;
+        entryProxy = Arrays.copyOf(entryProxy, c);
+        entryCellX = Arrays.copyOf(entryCellX, c);
+        entryCellY = Arrays.copyOf(entryCellY, c);
+        entryNext = Arrays.copyOf(entryNext, c);
+        entryPrev = Arrays.copyOf(entryPrev, c);
+        entryNextOfProxy = Arrays.copyOf(entryNextOfProxy, c);
+      }
+      e = entryCapacity++;
+    }
+    entryCount++;
+    return e;
+  }
+
+  private void rehash(int bucketCount) {
+    buckets = new int[bucketCount];
+    mask = bucketCount - 1;
+    Arrays.fill(buckets, NULL_ENTRY);
+    for (int e = 0; e < entryCapacity; e++) {
+      if (entryProxy[e] != NULL_PROXY) {
+        pushBucket(hash(entryCellX[e], entryCellY[e]), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import java.util.Arrays;
+
+/**
+ * A sort and sweep broadphase. The min and max x of every proxy are kept in
+ * one endpoint array which stays sorted between steps, since bodies move a
+ * little each step the array is nearly sorted and an insertion sort brings
+ * it back in close to linear time. Pairs are found in one sweep over the
+ * endpoints, a proxy becomes active at its min and inactive at its max and
+ * is tested on y against every proxy active when it starts, so every pair
+ * is visited exactly once.
+ *
+ * @param <T> the type of value held by each proxy
+ */
+public class SweepAndPrune<T> implements Broadphase<T> {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final BroadphaseProxies<T> proxies = new BroadphaseProxies<>();
+  // Each endpoint is proxy << 1 with the low bit set for a max endpoint.
+  private int[] endpoints = new int[INITIAL_CAPACITY];
+  private int endpointCount;
+  private int[] active = new int[INITIAL_CAPACITY];
+  private int[] activeSlot = new int[INITIAL_CAPACITY];
+  private int activeCount;
+
+  @Override
+  public int add(T value, float minX, float minY, float maxX, float maxY) {
+    int proxy = proxies.allocate(value, minX, minY, maxX, maxY);
+    if (endpointCount + 2 > endpoints.length) {
+      endpoints = Arrays.copyOf(endpoints, endpoints.length * 2);
+    }
+    if (proxy >= activeSlot.length) {
+      activeSlot = Arrays.copyOf(activeSlot, activeSlot.length * 2);
+      active = Arrays.copyOf(active, active.length * 2);
+    }
+    // Appended endpoints are moved into place by the next sort.
+    endpoints[endpointCount++] = proxy << 1;
+    endpoints[endpointCount++] = proxy << 1 | 1;
+    return proxy;
+  }
+
+  /**
+   * Set the box of a proxy, the endpoints are sorted lazily by the next
+   * query so this never moves the proxy.
+   *
+   * @return false
+   */
+  @Override
+  public boolean move(int proxy, float minX, float minY, float maxX, float maxY) {
+    proxies.set(proxy, minX, minY, maxX, maxY);
+    return false;
+  }
+
+  @Override
+  public void remove(int proxy) {
+    proxies.free(proxy);
+    int j = 0;
+    for (int i = 0; i < endpointCount; i++) {
+      int e = endpoints[i];
+      if (e >> 1 != proxy) {
+        endpoints[j++] = e;
+      }
+    }
+    endpointCount = j;
+  }
+
+  @Override
+  public T getValue(int proxy) {
+    return proxies.getValue(proxy);
+  }
+
+  @Override
+  public void query(float x0, float y0, float x1, float y1, Visitor<T> visitor) {
+    sort();
+    for (int i = 0; i < endpointCount; i++) {
+      int e = endpoints[i];
+      if (value(e) > x1) {
+        break;
+      }
+      int proxy = e >> 1;
+      if ((e & 1) == 0 && proxies.overlaps(proxy, x0, y0, x1, y1)) {
+        visitor.visit(proxy, proxies.getValue(proxy));
+      }
+    }
+  }
+
+  @Override
+  public void queryPairs(PairVisitor<T> visitor) {
+    sort();
+    activeCount = 0;
+    for (int i = 0; i < endpointCount; i++) {
+      int e = endpoints[i];
+      int proxy = e >> 1;
+      if ((e & 1) == 1) {
+        int slot = activeSlot[proxy];
+        int last = active[--activeCount];
+        active[slot] = last;
+        activeSlot[last] = slot;
+        continue;
+      }
+      float y0 = proxies.getMinY(proxy);
+      float y1 = proxies.getMaxY(proxy);
+      for (int k = 0; k < activeCount; k++) {
+        int other = active[k];
+        if (proxies.getMinY(other) <= y1 && proxies.getMaxY(other) >= y0) {
+          visitor.visit(proxies.getValue(other), proxies.getValue(proxy));
+        }
+      }
+      activeSlot[proxy] = activeCount;
+      active[activeCount++] = proxy;
+    }
+  }
+
+  @Override
+  public int size() {
+    return proxies.size();
+  }
+
+  private float value(int e) {
+    int proxy = e >> 1;
+    return (e & 1) == 0 ? proxies.getMinX(proxy) : proxies.getMaxX(proxy);
+  }
+
+  /**
+   * Endpoints are ordered by value with min endpoints first on ties, so
+   * touching boxes overlap.
+   */
+  private boolean less(int a, int b) {
+    float va = value(a);
+    float vb = value(b);
+    return va < vb || va == vb && (a & 1) < (b & 1);
+  }
+
+  private void sort() {
+    for (int i = 1; i < endpointCount; i++) {
+      int e = endpoints[i];
+      int j = i - 1;
+      while (j >= 0 && less(e, endpoints[j])) {
+        endpoints[j + 1] = endpoints[j];
+        j--;
+      }
+      endpoints[j + 1] = e;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+/**
+ * A rotation followed by a translation in the plane, used to place a shape
+ * held in local space into the world without touching its vertices.
+ */
+public final class Transform {
+
+  private float x;
+  private float y;
+  private float cos = 1f;
+  private float sin;
+
+  /**
+   * Set this transform.
+   *
+   * @param x the translation in x
+   * @param y the translation in y
+   * @param angle the counter clockwise rotation in radians
+   */
+  public void set(float x, float y, float angle) {
+    this.x = x;
+    this.y = y;
+    this.cos = (float) Math.cos(angle);
+    this.sin = (float) Math.sin(angle);
+  }
+
+  /**
+   * Set this transform to t moved by (dx, dy).
+   *
+   * @param t the transform to copy
+   * @param dx the extra translation in x
+   * @param dy the extra translation in y
+   */
+  public void set(Transform t, float dx, float dy) {
+    this.x = t.x + dx;
+    this.y = t.y + dy;
+    this.cos = t.cos;
+    this.sin = t.sin;
+  }
+
+  public float getX() {
+    return x;
+  }
+
+  public float getY() {
+    return y;
+  }
+
+  public float getCos() {
+    return cos;
+  }
+
+  public float getSin() {
+    return sin;
+  }
+
+  /**
+   * The world x of the local point (lx, ly).
+   */
+  public float applyX(float lx, float ly) {
+    return cos * lx - sin * ly + x;
+  }
+
+  /**
+   * The world y of the local point (lx, ly).
+   */
+  public float applyY(float lx, float ly) {
+    return sin * lx + cos * ly + y;
+  }
+
+  /**
+   * The local x of the world direction (dx, dy), the inverse rotation.
+   */
+  public float inverseRotateX(float dx, float dy) {
+    return cos * dx + sin * dy;
+  }
+
+  /**
+   * The local y of the world direction (dx, dy), the inverse rotation.
+   */
+  public float inverseRotateY(float dx, float dy) {
+    return -sin * dx + cos * dy;
+  }
+
+  /**
+   * The half width in the world of a local box with half extents (hx, hy)
+   * after the rotation.
+   */
+  public float extentX(float hx, float hy) {
+    return Math.abs(cos) * hx + Math.abs(sin) * hy;
+  }
+
+  /**
+   * The half height in the world of a local box with half extents (hx, hy)
+   * after the rotation.
+   */
+  public float extentY(float hx, float hy) {
+    return Math.abs(sin) * hx + Math.abs(cos) * hy;
+  }
+}
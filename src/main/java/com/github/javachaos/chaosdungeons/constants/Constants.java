@@ -44,6 +44,38 @@ public class Constants {
     public static final String JAVA_PATH_SEPARATOR = "/";
     public static final boolean DEBUG = Main.getPropertyManager().getBooleanProperty("game.debug",
       false);
+
+  /**
+   * The broadphase used by the physics system, quadtree, aabbtree, sap or grid.
+   */
+  public static final String BROADPHASE = Main.getPropertyManager()
+      .getStringProperty("physics.broadphase", "quadtree");
+
+  /**
+   * The cell size of the grid broadphase.
+   */
+  public static final float GRID_CELL_SIZE = Main.getPropertyManager()
+      .getFloatProperty("physics.grid.cell_size", 32f);
+
+  /**
+   * The speed below which a body counts as at rest.
+   */
+  public static final float SLEEP_VELOCITY = Main.getPropertyManager()
+      .getFloatProperty("physics.sleep.velocity", 0.05f);
+
+  /**
+   * The number of physics steps every body of an island must be at rest
+   * before the island goes to sleep.
+   */
+  public static final int SLEEP_STEPS = Main.getPropertyManager()
+      .getIntegerProperty("physics.sleep.steps", 60);
+
+  /**
+   * The number of velocity iterations of the contact solver per step.
+   */
+  public static final int SOLVER_ITERATIONS = Main.getPropertyManager()
+      .getIntegerProperty("physics.solver.iterations", 8);
+
   /**
    * Unused constructor.
    */
@@ -1,6 +1,7 @@
 package com.github.javachaos.chaosdungeons.ecs;
 
 import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
+import com.github.javachaos.chaosdungeons.ecs.systems.SystemScheduler;
 import com.github.javachaos.chaosdungeons.gui.GameWindow;
 
 /**
@@ -10,11 +11,17 @@ public class GameLoop {
 
   private boolean init;
   private final GameContext gameContext;
-  private static final float FIXED_TIME_STEP = .0016F; // 16 milliseconds
-  private double accumulatedTime = 0.0;
+  private final SystemScheduler scheduler;
 
+  /**
+   * Create a new game loop, the update systems are scheduled in the
+   * order they are added.
+   */
   public GameLoop() {
     gameContext = new GameContext();
+    scheduler = new SystemScheduler();
+    scheduler.add(gameContext.getLoadSystem());
+    scheduler.add(gameContext.getPhysicsSystem());
   }
 
   /**
@@ -42,14 +49,10 @@ public class GameLoop {
    */
   public void update(double dt) {
     GameWindow.getCamera().update();
-    // Accumulate time
-    accumulatedTime += dt;
-    gameContext.getLoadSystem().update(dt);
-    // Perform physics updates for each fixed time step
-    while (accumulatedTime >= FIXED_TIME_STEP) {
-      gameContext.getPhysicsSystem().update(FIXED_TIME_STEP);
-      accumulatedTime = 0;
-    }
+    scheduler.update(dt);
+    // No system is running here, so it is safe to change the entity set.
+    gameContext.playbackCommands();
+    gameContext.flushRemovals();
   }
 
   public void shutdown() {
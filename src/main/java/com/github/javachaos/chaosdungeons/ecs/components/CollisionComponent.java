@@ -1,23 +1,38 @@
 package com.github.javachaos.chaosdungeons.ecs.components;
 
+import com.github.javachaos.chaosdungeons.collision.Broadphase;
 import com.github.javachaos.chaosdungeons.collision.Polygon;
+import com.github.javachaos.chaosdungeons.collision.Transform;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import org.joml.Vector3f;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
 
 /**
- * Basic collision component class.
+ * Basic collision component class. The shape is held in local space, with
+ * the origin at the position of the entity, and is placed in the world by
+ * a transform taken from the {@link TransformComponent}, so moving or
+ * rotating an entity never touches the vertices of its shape.
  */
 public class CollisionComponent extends Component {
 
   private static final Logger LOGGER = LogManager.getLogger(CollisionComponent.class);
   private Polygon shape;
+  private final Transform transform = new Transform();
+  private int proxy = Broadphase.NULL_PROXY;
+  private boolean continuous;
+  private float minX;
+  private float minY;
+  private float maxX;
+  private float maxY;
 
   /**
    * Create a new component.
+   *
+   * @param shape the shape in local space
    */
   public CollisionComponent(Polygon shape) {
     super();
@@ -34,17 +49,121 @@ public class CollisionComponent extends Component {
   /**
    * Return the shape for this collision component.
    *
-   * @return the shape of this collision component
+   * @return the shape of this collision component in local space
    */
   public Polygon getShape() {
     return shape;
   }
 
+  /**
+   * Get the transform from the local space of the shape to the world.
+   *
+   * @return the world transform
+   */
+  public Transform getTransform() {
+    return transform;
+  }
+
+  /**
+   * Get the center of the shape in the world.
+   *
+   * @return the center as a new vector
+   */
+  public Vector2f getCenter() {
+    Polygon.Point c = shape.getCenter();
+    return new Vector2f(transform.applyX(c.x, c.y), transform.applyY(c.x, c.y));
+  }
+
+  /**
+   * Get the min x of the world box, which holds the local bounds of the
+   * shape after the transform, see {@link #updateTransform()}.
+   *
+   * @return the min x
+   */
+  public float getMinX() {
+    return minX;
+  }
+
+  public float getMinY() {
+    return minY;
+  }
+
+  public float getMaxX() {
+    return maxX;
+  }
+
+  public float getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * Copy the position and the rotation about z of the entity into the
+   * world transform and refresh the world box from the four corners of
+   * the cached local bounds.
+   */
+  public void updateTransform() {
+    TransformComponent tc = ((GameEntity) getEntity()).getTransformComponent();
+    Quaternionf q = tc.getRotation();
+    // The angle of the local x axis after the rotation.
+    float ax = 1f - 2f * (q.y * q.y + q.z * q.z);
+    float ay = 2f * (q.x * q.y + q.w * q.z);
+    transform.set(tc.getBody().getX(), tc.getBody().getY(), (float) Math.atan2(ay, ax));
+    float x0 = shape.getMinX();
+    float y0 = shape.getMinY();
+    float x1 = shape.getMaxX();
+    float y1 = shape.getMaxY();
+    float cx = (x0 + x1) / 2f;
+    float cy = (y0 + y1) / 2f;
+    float hx = (x1 - x0) / 2f;
+    float hy = (y1 - y0) / 2f;
+    float ex = transform.extentX(hx, hy);
+    float ey = transform.extentY(hx, hy);
+    float wx = transform.applyX(cx, cy);
+    float wy = transform.applyY(cx, cy);
+    minX = wx - ex;
+    minY = wy - ey;
+    maxX = wx + ex;
+    maxY = wy + ey;
+  }
+
+  /**
+   * Get the broadphase proxy of this component.
+   *
+   * @return the proxy id or {@link Broadphase#NULL_PROXY}
+   */
+  public int getProxy() {
+    return proxy;
+  }
+
+  public void setProxy(int proxy) {
+    this.proxy = proxy;
+  }
+
+  /**
+   * Check if this shape is swept along its motion each step, see
+   * {@link #setContinuous(boolean)}.
+   *
+   * @return true for continuous collision detection
+   */
+  public boolean isContinuous() {
+    return continuous;
+  }
+
+  /**
+   * Sweep this shape along its motion each step so it cannot pass through
+   * thin shapes when it moves further than its own size in one step. Meant
+   * for small fast bodies, the sweep costs a query and a few narrowphase
+   * tests per step.
+   *
+   * @param continuous true for continuous collision detection
+   */
+  public void setContinuous(boolean continuous) {
+    this.continuous = continuous;
+  }
+
   @Override
   public void update(double dt) {
-    GameEntity gameEntity = (GameEntity)getEntity();
-    Vector3f pos = gameEntity.getComponent(TransformComponent.class).getPosition();
-    shape.translate(new Polygon.Point(pos.x, pos.y));
+    updateTransform();
   }
 
   @Override
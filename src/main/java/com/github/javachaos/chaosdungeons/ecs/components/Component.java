@@ -7,8 +7,6 @@ import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
  */
 public abstract class Component {
 
-  private long id;
-
   private Entity entity;
 
   public void setEntity(Entity e) {
@@ -27,12 +25,4 @@ public abstract class Component {
   public String toString() {
     return getClass().getSimpleName();
   }
-
-  public void setIndex(long l) {
-    this.id = l;
-  }
-
-  public long getIndex() {
-    return id;
-  }
 }
@@ -0,0 +1,117 @@
+package com.github.javachaos.chaosdungeons.ecs.components;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Gives every component type a small dense integer id, in the order the
+ * types are first seen. The mask of a type has the bit of the type and of
+ * every component super type set, so the signature of an entity, the OR of
+ * the masks of its components, answers "has a component assignable to T"
+ * with a single bit test of the id of T.
+ */
+public final class ComponentRegistry {
+
+  private static final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, BitSet> masks = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Boolean> sparse = new ConcurrentHashMap<>();
+  private static final List<Class<? extends Component>> types = new CopyOnWriteArrayList<>();
+
+  private ComponentRegistry() {
+    //Unused
+  }
+
+  /**
+   * Get the id of a component type, registering it if needed.
+   *
+   * @param type the component type
+   * @return the id of type
+   */
+  public static int id(Class<? extends Component> type) {
+    Integer id = ids.get(type);
+    return id != null ? id : register(type);
+  }
+
+  private static synchronized int register(Class<? extends Component> type) {
+    if (type == Component.class || !Component.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException("Not a component subtype: " + type.getName());
+    }
+    Integer id = ids.get(type);
+    if (id == null) {
+      id = types.size();
+      types.add(type);
+      ids.put(type, id);
+    }
+    return id;
+  }
+
+  /**
+   * Get the mask of a component type, the bits of type and each of its
+   * component super types. The returned set is shared and must not be
+   * modified.
+   *
+   * @param type the component type
+   * @return the mask of type
+   */
+  @SuppressWarnings("unchecked")
+  public static BitSet mask(Class<? extends Component> type) {
+    BitSet m = masks.get(type);
+    if (m == null) {
+      m = new BitSet();
+      for (Class<?> c = type; c != Component.class; c = c.getSuperclass()) {
+        m.set(id((Class<? extends Component>) c));
+      }
+      masks.putIfAbsent(type, m);
+    }
+    return m;
+  }
+
+  /**
+   * True if components of type are kept in sparse set pools, see
+   * {@link SparseStorage}.
+   *
+   * @param type the component type
+   * @return true if type uses sparse storage
+   */
+  public static boolean isSparse(Class<? extends Component> type) {
+    return sparse.computeIfAbsent(type, t -> t.isAnnotationPresent(SparseStorage.class));
+  }
+
+  /**
+   * Get the component type with the id.
+   *
+   * @param id the id
+   * @return the component type
+   */
+  public static Class<? extends Component> type(int id) {
+    return types.get(id);
+  }
+
+  /**
+   * Get the number of registered component types.
+   *
+   * @return the number of ids handed out
+   */
+  public static int count() {
+    return types.size();
+  }
+
+  /**
+   * True if every bit of mask is also set in signature.
+   *
+   * @param signature the signature to test
+   * @param mask the required bits
+   * @return true if signature contains mask
+   */
+  public static boolean containsAll(BitSet signature, BitSet mask) {
+    for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+      if (!signature.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -13,9 +13,6 @@ import org.joml.Vector3f;
 public class GravityComponent extends PhysicsComponent {
 
   private static final Logger LOGGER = LogManager.getLogger(GravityComponent.class);
-  private static final double GRAVITATIONAL_FACTOR = -9.8;
-
-  private double fg = 1.0;
 
   /**
    * Create a new component.
@@ -23,7 +20,7 @@ public class GravityComponent extends PhysicsComponent {
   public GravityComponent(float mass,
                           double restitution,
                           Vector2f initialVelocity) {
-    super(mass, restitution, initialVelocity, false);
+    this(mass, restitution, initialVelocity, 1.0);
   }
 
   /**
@@ -33,7 +30,7 @@ public class GravityComponent extends PhysicsComponent {
                           double restitution,
                           Vector2f initialVelocity,
                           Vector3f initialAngularVelocity) {
-    super(mass, restitution, initialVelocity, initialAngularVelocity, false);
+    this(mass, restitution, initialVelocity, initialAngularVelocity, 1.0);
   }
 
   /**
@@ -44,7 +41,7 @@ public class GravityComponent extends PhysicsComponent {
                           Vector2f initialVelocity,
                           double gravitationalMultiplier) {
     super(mass, restitution, initialVelocity, false);
-    this.fg = gravitationalMultiplier;
+    getBody().setGravity((float) gravitationalMultiplier);
   }
 
   /**
@@ -56,13 +53,17 @@ public class GravityComponent extends PhysicsComponent {
                           Vector3f initialAngularVelocity,
                           double gravitationalMultiplier) {
     super(mass, restitution, initialVelocity, initialAngularVelocity, false);
-    this.fg = gravitationalMultiplier;
+    getBody().setGravity((float) gravitationalMultiplier);
   }
 
-  @Override
-  public void update(double dt) {
-    super.update(dt);
-    applyForce(0.0, fg * GRAVITATIONAL_FACTOR);
+  /**
+   * Get the gravitational multiplier, gravity itself is applied when
+   * the body is integrated.
+   *
+   * @return the gravitational multiplier
+   */
+  public double getGravitationalMultiplier() {
+    return getBody().getGravity();
   }
 
 }
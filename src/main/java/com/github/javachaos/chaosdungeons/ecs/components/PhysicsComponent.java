@@ -2,6 +2,7 @@ package com.github.javachaos.chaosdungeons.ecs.components;
 
 import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joml.Quaternionf;
@@ -9,7 +10,8 @@ import org.joml.Vector2f;
 import org.joml.Vector3f;
 
 /**
- * A simple physics component.
+ * A simple physics component. The linear state is a view over a
+ * {@link Body}, which the physics system integrates in bulk.
  */
 @SuppressWarnings("unused")
 public class PhysicsComponent extends Component {
@@ -17,11 +19,8 @@ public class PhysicsComponent extends Component {
   private static final Logger LOGGER = LogManager.getLogger(PhysicsComponent.class);
   private final Vector2f velocity;
   private final Vector3f angularVelocity;
-  private final Vector2f prevPos;
-  private final float invMass;
-  private final double restitution; // Coefficient of restitution for bounciness
   private final Quaternionf prevRotation;
-  private boolean isStatic;   // Flag to indicate if the entity is static (immovable)
+  private Body body;
 
   /**
    * Create a new physics component.
@@ -32,14 +31,7 @@ public class PhysicsComponent extends Component {
    */
   public PhysicsComponent(float invMass, double restitution, Vector2f initialVelocity,
                           boolean isStatic) {
-    super();
-    this.velocity = initialVelocity;
-    this.invMass = (float) (1.0 / invMass);
-    this.restitution = restitution;
-    this.isStatic = isStatic;
-    this.prevPos = new Vector2f(0, 0);
-    this.prevRotation = new Quaternionf();
-    this.angularVelocity = new Vector3f();
+    this(invMass, restitution, initialVelocity, new Vector3f(), isStatic);
   }
 
   /**
@@ -53,33 +45,53 @@ public class PhysicsComponent extends Component {
                           Vector2f initialVelocity, Vector3f initialAngularVelocity,
                           boolean isStatic) {
     super();
-    this.velocity = initialVelocity;
-    this.invMass = (float) (1.0 / invMass);
-    this.restitution = restitution;
-    this.isStatic = isStatic;
+    this.velocity = new Vector2f();
     this.prevRotation = new Quaternionf();
-    this.prevPos = new Vector2f(0, 0);
     this.angularVelocity = initialAngularVelocity;
+    this.body = Body.detached();
+    body.setVelocity(initialVelocity.x, initialVelocity.y);
+    body.setInvMass((float) (1.0 / invMass));
+    body.setRestitution((float) restitution);
+    body.setFixed(isStatic);
+  }
+
+  /**
+   * Bind this component to the body b, the current linear state of this
+   * component is copied into b.
+   *
+   * @param b the body which will hold the linear state
+   */
+  public void setBody(Body b) {
+    b.setVelocity(body.getVx(), body.getVy());
+    b.setInvMass(body.getInvMass());
+    b.setRestitution(body.getRestitution());
+    b.setGravity(body.getGravity());
+    b.setFixed(body.isFixed());
+    this.body = b;
+  }
+
+  public Body getBody() {
+    return body;
   }
 
   public double getVx() {
-    return velocity.x;
+    return body.getVx();
   }
 
   public double getVy() {
-    return velocity.y;
+    return body.getVy();
   }
 
   public float getInvMass() {
-    return invMass;
+    return body.getInvMass();
   }
 
   public double getRestitution() {
-    return restitution;
+    return body.getRestitution();
   }
 
   public boolean isStatic() {
-    return isStatic;
+    return body.isFixed();
   }
 
   /**
@@ -89,11 +101,11 @@ public class PhysicsComponent extends Component {
    * @param forceY force in the y direction
    */
   public void applyForce(double forceX, double forceY) {
-    if (!isStatic) {
-      double ax = forceX * invMass;
-      double ay = forceY * invMass;
-      velocity.x += (float) ax;
-      velocity.y += (float) ay;
+    if (!body.isFixed()) {
+      body.wake();
+      double ax = forceX * body.getInvMass();
+      double ay = forceY * body.getInvMass();
+      body.setVelocity(body.getVx() + (float) ax, body.getVy() + (float) ay);
     }
   }
 
@@ -101,8 +113,10 @@ public class PhysicsComponent extends Component {
     this.applyForce(v.x, v.y);
   }
 
-  public synchronized void applyImpulse(Vector2f impulse) {
-   velocity.add(impulse).mul(invMass);
+  public void applyImpulse(Vector2f impulse) {
+    body.wake();
+    float m = body.getInvMass();
+    body.setVelocity((body.getVx() + impulse.x) * m, (body.getVy() + impulse.y) * m);
   }
 
   /**
@@ -113,10 +127,10 @@ public class PhysicsComponent extends Component {
    * @param forceZ angular force along the z-axis
    */
   public void applyAngularForce(double forceX, double forceY, double forceZ) {
-    double ax = forceX * invMass;
-    double ay = forceY * invMass;
-    double az = forceZ * invMass;
-    angularVelocity.set(new Vector3f((float) ax, (float) ay, (float) az));
+    double ax = forceX * body.getInvMass();
+    double ay = forceY * body.getInvMass();
+    double az = forceZ * body.getInvMass();
+    angularVelocity.set((float) ax, (float) ay, (float) az);
   }
 
   /**
@@ -126,37 +140,27 @@ public class PhysicsComponent extends Component {
    */
   public void clampVelocity(float maxSpeed) {
     // Clamp each component of the velocity vector separately
-    velocity.x = Math.min(maxSpeed, Math.max(-maxSpeed, velocity.x));
-    velocity.y = Math.min(maxSpeed, Math.max(-maxSpeed, velocity.y));
+    body.setVelocity(Math.min(maxSpeed, Math.max(-maxSpeed, body.getVx())),
+        Math.min(maxSpeed, Math.max(-maxSpeed, body.getVy())));
   }
 
 
   /**
-   * Verlet integration method to update position and velocity.
+   * Integrate the rotation of this component, position and velocity are
+   * integrated for all bodies at once by {@link
+   * com.github.javachaos.chaosdungeons.ecs.storage.BodyStore#integrate(float)}.
+   * A sleeping body does not turn.
    *
    * @param dt the change in time between updates
    */
   @Override
   public void update(double dt) {
+    if (body.isAsleep()) {
+      return;
+    }
     GameEntity gameEntity = (GameEntity) getEntity();
-      Vector3f pos = gameEntity.getTransformComponent().getPosition();
-      Quaternionf rot = gameEntity.getTransformComponent().getRotation();
-      prevPos.x = pos.x;
-      prevPos.y = pos.y;
-
-      // Perform Verlet integration for position
-      float newX = (float) (pos.x + velocity.x * dt);
-      float newY = (float) (pos.y + velocity.y * dt);
-
-      // Update velocity using Verlet integration
-      velocity.x = (float) ((newX - prevPos.x) / dt);
-      velocity.y = (float) ((newY - prevPos.y) / dt);
-
-      // Update rotation
-      rot.integrate((float) dt, angularVelocity.x, angularVelocity.y, angularVelocity.z);
-
-      // Update position
-      gameEntity.getTransformComponent().setPosition(new Vector3f(newX, newY, 0));
+    Quaternionf rot = gameEntity.getTransformComponent().getRotation();
+    rot.integrate((float) dt, angularVelocity.x, angularVelocity.y, angularVelocity.z);
   }
 
   /**
@@ -166,24 +170,33 @@ public class PhysicsComponent extends Component {
    */
   public Vector2f getCenter() {
     GameEntity gameEntity = (GameEntity) getEntity();
-    return gameEntity.getCollisionComponent().getShape().getCenter();
+    return gameEntity.getCollisionComponent().getCenter();
   }
 
   @Override
   public void destroy() {
-    isStatic = true;
+    if (!body.isReleased()) {
+      body.setFixed(true);
+    }
   }
 
   public void setAngularVelocity(Vector3f initialAngularVelocity) {
     angularVelocity.set(initialAngularVelocity);
   }
 
+  /**
+   * Get the velocity of this component. The returned vector is refreshed
+   * from the body on every call, use {@link #setVelocity} to change it.
+   *
+   * @return the velocity
+   */
   public Vector2f getVelocity() {
-    return velocity;
+    return velocity.set(body.getVx(), body.getVy());
   }
 
   public void setVelocity(Vector2f v1Prime) {
-    this.velocity.set(v1Prime);
+    body.wake();
+    body.setVelocity(v1Prime.x, v1Prime.y);
   }
 
 }
@@ -0,0 +1,21 @@
+package com.github.javachaos.chaosdungeons.ecs.components;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a component type which is added to and removed from entities
+ * often. Such components are kept in a sparse set pool instead of the
+ * archetype tables, so toggling them never moves the entity between
+ * archetypes.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SparseStorage {
+}
@@ -1,14 +1,20 @@
 package com.github.javachaos.chaosdungeons.ecs.components;
 
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
+/**
+ * Transform component, the x and y position are a view over a {@link Body}
+ * so the physics step can move entities without touching this object.
+ */
 public class TransformComponent extends Component {
     private final Matrix4f transform;
     private final Vector3f position;
     private final Quaternionf rotation;
     private final Vector3f scale;
+    private Body body;
 
     public TransformComponent() {
         transform = new Matrix4f();
@@ -16,6 +22,22 @@ public class TransformComponent extends Component {
         position = new Vector3f();
         rotation = new Quaternionf();
         scale = new Vector3f(1, 1, 1);
+        body = Body.detached();
+    }
+
+    /**
+     * Bind this transform to the body b, the current position is copied
+     * into b.
+     *
+     * @param b the body which will hold the position
+     */
+    public void setBody(Body b) {
+        b.setPosition(body.getX(), body.getY());
+        this.body = b;
+    }
+
+    public Body getBody() {
+        return body;
     }
 
     public void setTransform(Matrix4f transform) {
@@ -28,7 +50,7 @@ public class TransformComponent extends Component {
 
     @Override
     public void update(double dt) {
-        transform.translate(position)
+        transform.translate(getPosition())
                  .rotation(rotation)
                  .scale(scale);
     }
@@ -38,12 +60,23 @@ public class TransformComponent extends Component {
         transform.identity();
     }
 
+    /**
+     * Get the position of this transform. The returned vector is refreshed
+     * from the body on every call, use {@link #setPosition} to move it.
+     *
+     * @return the position
+     */
     public Vector3f getPosition() {
-        return position;
+        return position.set(body.getX(), body.getY(), position.z);
     }
 
     public void setPosition(Vector3f position) {
-        this.position.set(position);
+        setPosition(position.x, position.y);
+        this.position.z = position.z;
+    }
+
+    public void setPosition(float x, float y) {
+        body.setPosition(x, y);
     }
 
     public void setRotation(Quaternionf rot) {
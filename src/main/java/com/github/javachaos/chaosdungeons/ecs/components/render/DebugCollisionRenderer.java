@@ -1,8 +1,9 @@
 package com.github.javachaos.chaosdungeons.ecs.components.render;
 
 import com.github.javachaos.chaosdungeons.collision.Polygon;
+import com.github.javachaos.chaosdungeons.collision.Transform;
+import com.github.javachaos.chaosdungeons.ecs.components.SparseStorage;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
-import org.joml.Vector3f;
 
 import static org.lwjgl.opengl.GL11.GL_LINE_LOOP;
 import static org.lwjgl.opengl.GL11.glBegin;
@@ -11,7 +12,9 @@ import static org.lwjgl.opengl.GL11.glVertex2f;
 
 /**
  * A class to draw simple debugging lines over the attached entity.
+ * Debug renderers are toggled at runtime so they use sparse storage.
  */
+@SparseStorage
 public class DebugCollisionRenderer extends RenderComponent {
   private final Polygon shape;
 
@@ -19,23 +22,15 @@ public class DebugCollisionRenderer extends RenderComponent {
     this.shape = v;
   }
 
-  @Override
-  public void update(double dt) {
-    super.update(dt);
-    GameEntity ge = ((GameEntity) getEntity());
-    Vector3f pos = ge.getTransformComponent().getPosition();
-    shape.translate(new Polygon.Point(pos.x, pos.y));
-  }
-
   @Override
   public void render(double dt) {
     GameEntity ge = ((GameEntity) getEntity());
-    Vector3f pos = ge.getTransformComponent().getPosition();
+    Transform t = ge.getCollisionComponent().getTransform();
       glBegin(GL_LINE_LOOP);
-        for (long i = 0; i < shape.getSize(); i++) {
-          Polygon.Point pp = shape.getPoint(i);
-          glVertex2f(pp.x() + pos.x - shape.getBounds().w() / 2f,
-                  pp.y() + pos.y - shape.getBounds().h() / 2f);
+        for (int i = 0; i < shape.getVertexCount(); i++) {
+          float x = shape.getX(i);
+          float y = shape.getY(i);
+          glVertex2f(t.applyX(x, y), t.applyY(x, y));
         }
       glEnd();
   }
@@ -51,4 +51,10 @@ public class ShapeComponent extends RenderComponent {
       GL30.glBindVertexArray(0);
   }
 
+  @Override
+  public void destroy() {
+    mesh.delete();
+    super.destroy();
+  }
+
 }
@@ -0,0 +1,96 @@
+package com.github.javachaos.chaosdungeons.ecs.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
+
+/**
+ * Records structural changes to entities so they can be made later at a
+ * point where no system is iterating. Each thread records into its own
+ * buffer, see {@link GameContext#commands()}, and the buffers are played
+ * back in order by {@link GameContext#playbackCommands()}.
+ */
+public class CommandBuffer {
+
+  private enum Type {
+    CREATE,
+    ADD_COMPONENT,
+    REMOVE_COMPONENT,
+    DESTROY
+  }
+
+  private record Command(Type type, Entity entity, Component component) {}
+
+  private final List<Command> commands = new ArrayList<>();
+
+  /**
+   * Add the entity to the context and initialize it.
+   *
+   * @param e the entity to create
+   */
+  public void create(GameEntity e) {
+    commands.add(new Command(Type.CREATE, e, null));
+  }
+
+  /**
+   * Add the component c to the entity e.
+   *
+   * @param e the entity
+   * @param c the component to add
+   */
+  public void addComponent(Entity e, Component c) {
+    commands.add(new Command(Type.ADD_COMPONENT, e, c));
+  }
+
+  /**
+   * Remove the component c from the entity e.
+   *
+   * @param e the entity
+   * @param c the component to remove
+   */
+  public void removeComponent(Entity e, Component c) {
+    commands.add(new Command(Type.REMOVE_COMPONENT, e, c));
+  }
+
+  /**
+   * Remove the entity from the context.
+   *
+   * @param e the entity to destroy
+   */
+  public void destroy(GameEntity e) {
+    commands.add(new Command(Type.DESTROY, e, null));
+  }
+
+  public int size() {
+    return commands.size();
+  }
+
+  public boolean isEmpty() {
+    return commands.isEmpty();
+  }
+
+  /**
+   * Apply every recorded command in the order it was recorded, commands
+   * recorded while playing back are applied as well.
+   *
+   * @param gameContext the context to apply the commands to
+   */
+  void playback(GameContext gameContext) {
+    for (int i = 0; i < commands.size(); i++) {
+      Command c = commands.get(i);
+      switch (c.type()) {
+        case CREATE -> {
+          GameEntity e = (GameEntity) c.entity();
+          gameContext.addEntity(e);
+          e.init();
+        }
+        case ADD_COMPONENT -> c.entity().addComponent(c.component());
+        case REMOVE_COMPONENT -> c.entity().removeComponent(c.component());
+        case DESTROY -> gameContext.removeEntity((GameEntity) c.entity());
+      }
+    }
+    commands.clear();
+  }
+}
@@ -1,15 +1,19 @@
 package com.github.javachaos.chaosdungeons.ecs.entities;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joml.Vector2f;
 
 import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
 import com.github.javachaos.chaosdungeons.ecs.components.render.RenderComponent;
+import com.github.javachaos.chaosdungeons.ecs.storage.Archetype;
+import com.github.javachaos.chaosdungeons.ecs.storage.ArchetypeStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.ComponentPools;
 
 /**
  * Simple Entity class.
@@ -22,52 +26,99 @@ public abstract class Entity {
   private static final Logger LOGGER = LogManager.getLogger(Entity.class);
 
   private static final int REMOVAL_THRESHOLD = 256;
-  private long id;
   private long eid;
   protected Vector2f pos;
-  private final Map<Long, Component> components = new LinkedHashMap<>();
+  private ArchetypeStore store;
+  private Archetype archetype;
+  private int row = -1;
+  /**
+   * Components added before this entity is attached to a store.
+   */
+  private final List<Component> detached = new ArrayList<>();
+  /**
+   * The OR of the registry masks of all components of this entity.
+   */
+  private final BitSet signature = new BitSet();
 
   protected Entity() {
     super();
-    id = 0;
   }
 
   public abstract void init();
 
   /**
-   * Add a component to this entity. (same as addComponent(false, c))
+   * Add a component to this entity. If this entity already has a component
+   * of the exact same type it is replaced.
    *
    * @param c the component to add.
    */
   public void addComponent(Component c) {
     if (c != null) {
-      c.setIndex(id++);
-      components.put(id, c);
       c.setEntity(this);
+      if (store != null) {
+        store.addComponent(this, c);
+      } else {
+        detached.removeIf(x -> x.getClass() == c.getClass());
+        detached.add(c);
+        refreshSignature();
+      }
     }
   }
 
+  /**
+   * Get the first component of this entity which is assignable to clazz.
+   *
+   * @param clazz the component type
+   * @param <T> the component type
+   * @return the component or null if this entity has none
+   */
   public <T extends Component> T getComponent(Class<T> clazz) {
-    return components.values().stream()
-            .filter(x -> clazz.isAssignableFrom(x.getClass()))
-            .findFirst().map(clazz::cast).orElse(null);
+    if (archetype != null) {
+      T c = archetype.getComponent(row, clazz);
+      if (c != null || !signature.get(ComponentRegistry.id(clazz))) {
+        return c;
+      }
+      return store.getPools().getComponent(this, clazz);
+    }
+    for (Component c : detached) {
+      if (clazz.isInstance(c)) {
+        return clazz.cast(c);
+      }
+    }
+    return null;
   }
 
   public <T extends Component> List<T> getComponents(Class<T> clazz) {
-    return components.values().stream()
-            .filter(x -> clazz.isAssignableFrom(x.getClass()))
+    if (archetype != null) {
+      List<T> result = archetype.getComponents(row, clazz);
+      store.getPools().getComponents(this, clazz, result);
+      return result;
+    }
+    return detached.stream()
+            .filter(clazz::isInstance)
             .map(clazz::cast)
             .toList();
   }
 
   public List<RenderComponent> getRenderComponents() {
-    return components.values().stream().filter(RenderComponent.class::isInstance)
-            .map(RenderComponent.class::cast)
-            .toList();
+    return getComponents(RenderComponent.class);
   }
 
+  /**
+   * Get a copy of all the components of this entity in update order.
+   *
+   * @return the components of this entity
+   */
   public List<Component> getComponents() {
-    return List.copyOf(components.values());
+    if (archetype != null) {
+      List<Component> result = new ArrayList<>(archetype.getColumnCount());
+      for (int i = 0; i < archetype.getColumnCount(); i++) {
+        result.add(archetype.getComponent(row, i));
+      }
+      store.getPools().getComponents(this, result);
+      return result;
+    }
+    return List.copyOf(detached);
   }
 
   /**
@@ -76,18 +127,78 @@ public abstract class Entity {
    * @param c the component to be removed.
    */
   public void removeComponent(Component c) {
-    components.remove(c.getIndex());
+    if (store != null) {
+      store.removeComponent(this, c);
+    } else {
+      detached.remove(c);
+      refreshSignature();
+    }
   }
 
   protected abstract void update(float dt);
 
   /**
-   * Update order based on id value. (Lower ids are updated first)
+   * Update the components of this entity and then the entity itself.
    */
   public void update(double dt) {
-    for (Component c : getComponents()) {
-        c.update(dt);
+    updateComponents(dt);
+    updateLogic(dt);
+  }
+
+  /**
+   * Update every component of this entity in update order. Render components
+   * make GL calls so they are skipped here and updated by the render system.
+   * Components only touch their own entity, so different entities may be
+   * updated concurrently. Nothing is allocated on this path.
+   *
+   * @param dt the delta time
+   */
+  public void updateComponents(double dt) {
+    updateComponents(dt, false);
+  }
+
+  /**
+   * Update the render components of this entity, must be called on the
+   * render thread.
+   *
+   * @param dt the delta time
+   */
+  public void renderComponents(double dt) {
+    updateComponents(dt, true);
+  }
+
+  private void updateComponents(double dt, boolean render) {
+    if (archetype != null) {
+      for (int i = 0; i < archetype.getColumnCount(); i++) {
+        update(archetype.getComponent(row, i), dt, render);
+      }
+      ComponentPools pools = store.getPools();
+      for (int i = 0; i < pools.poolCount(); i++) {
+        Component c = pools.getPool(i).get(this);
+        if (c != null) {
+          update(c, dt, render);
+        }
+      }
+    } else {
+      for (int i = 0; i < detached.size(); i++) {
+        update(detached.get(i), dt, render);
+      }
     }
+  }
+
+  private static void update(Component c, double dt, boolean render) {
+    if (c instanceof RenderComponent == render) {
+      c.update(dt);
+    }
+  }
+
+  /**
+   * Run the entity's own update logic, which may spawn or remove entities
+   * and so must be called from one thread at a time.
+   *
+   * @param dt the delta time
+   */
+  public void updateLogic(double dt) {
     update((float) dt);
   }
 
@@ -97,17 +208,115 @@ public abstract class Entity {
   public abstract void destroy();
 
   public void shutdown() {
-    components.values().forEach(Component::destroy);
+    getComponents().forEach(Component::destroy);
     destroy();
   }
 
+  /**
+   * True if component is attached to this entity.
+   *
+   * @param component the component instance
+   * @return true if this entity holds component
+   */
   public boolean hasComponent(Component component) {
-    return components.containsValue(component);
+    if (!signature.get(ComponentRegistry.id(component.getClass()))) {
+      return false;
+    }
+    if (archetype != null && ComponentRegistry.isSparse(component.getClass())) {
+      return store.getPools().pool(component.getClass()).get(this) == component;
+    }
+    if (archetype != null) {
+      int col = archetype.indexOf(component.getClass());
+      return col >= 0 && archetype.getComponent(row, col) == component;
+    }
+    return detached.contains(component);
   }
 
+  /**
+   * True if this entity has a component assignable to the type component.
+   *
+   * @param component the component type
+   * @param <T> the component type
+   * @return true if this entity has such a component
+   */
   public <T extends Component> boolean hasComponent(Class<T> component) {
-    return components.values().stream()
-            .anyMatch(component::isInstance);
+    return signature.get(ComponentRegistry.id(component));
+  }
+
+  /**
+   * Move this entity and its components into the store.
+   *
+   * @param store the store which will own the components of this entity
+   */
+  public void attach(ArchetypeStore store) {
+    if (this.store != null) {
+      throw new IllegalStateException("Entity is already attached.");
+    }
+    this.store = store;
+    store.add(this, detached);
+    detached.clear();
+  }
+
+  /**
+   * Remove this entity from its store, the components are kept on
+   * the entity so that it can still be shut down.
+   */
+  public void detach() {
+    if (store != null) {
+      detached.addAll(getComponents());
+      store.remove(this);
+      store = null;
+    }
+  }
+
+  public Archetype getArchetype() {
+    return archetype;
+  }
+
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Set the table location of this entity, used by {@link ArchetypeStore}.
+   *
+   * @param archetype the archetype which holds this entity
+   * @param row the row of this entity within archetype
+   */
+  public void setLocation(Archetype archetype, int row) {
+    Archetype previous = this.archetype;
+    this.archetype = archetype;
+    this.row = row;
+    if (previous != archetype) {
+      refreshSignature();
+    }
+  }
+
+  /**
+   * Get the component signature of this entity, bit i is set when this
+   * entity has a component assignable to the type with registry id i.
+   * The returned set must not be modified.
+   *
+   * @return the signature
+   */
+  public BitSet getSignature() {
+    return signature;
+  }
+
+  /**
+   * Recompute the signature of this entity from its components, used by
+   * {@link ArchetypeStore} when a pooled component is added or removed.
+   */
+  public void refreshSignature() {
+    signature.clear();
+    if (archetype != null) {
+      signature.or(archetype.getSignature());
+      store.getPools().addSignature(this, signature);
+    } else {
+      for (Component c : detached) {
+        signature.or(ComponentRegistry.mask(c.getClass()));
+      }
+    }
   }
 
   public void setEntityId(long i) {
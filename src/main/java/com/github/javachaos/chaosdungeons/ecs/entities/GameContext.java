@@ -1,15 +1,25 @@
 package com.github.javachaos.chaosdungeons.ecs.entities;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import com.github.javachaos.chaosdungeons.ecs.components.Component;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
+import com.github.javachaos.chaosdungeons.ecs.storage.ArchetypeStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.BodyStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.ComponentPools;
+import com.github.javachaos.chaosdungeons.ecs.storage.EntityIdPool;
+import com.github.javachaos.chaosdungeons.ecs.storage.Query;
 import com.github.javachaos.chaosdungeons.ecs.systems.LoadSystem;
 import com.github.javachaos.chaosdungeons.ecs.systems.PhysicsSystem;
 import com.github.javachaos.chaosdungeons.ecs.systems.RenderSystem;
@@ -24,15 +34,26 @@ import com.github.javachaos.chaosdungeons.shaders.WorldShader;
  * systems.
  */
 public class GameContext {
+    private static final Logger LOGGER = LogManager.getLogger(GameContext.class);
     private static final String WORLD = "world";
     private final Map<String, ShaderProgram> shaderProgramMap = new HashMap<>();
     private ShaderProgram currentShader;
     private final Map<Long, GameEntity> entityMap;
+    private final ComponentPools componentPools = new ComponentPools();
+    private final ArchetypeStore archetypeStore = new ArchetypeStore(componentPools);
+    private final BodyStore bodyStore = new BodyStore();
     private final RenderSystem renderSystem;
     private final PhysicsSystem physicsSystem;
     private final LoadSystem loadSystem;
 
-    private final AtomicLong entityCount = new AtomicLong(0);
+    private final EntityIdPool entityIds = new EntityIdPool();
+    private final Deque<GameEntity> removalQueue = new ArrayDeque<>();
+    private final List<CommandBuffer> commandBuffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<CommandBuffer> commands = ThreadLocal.withInitial(() -> {
+        CommandBuffer b = new CommandBuffer();
+        commandBuffers.add(b);
+        return b;
+    });
 
     public GameContext() {
         entityMap = new LinkedHashMap<>();
@@ -68,15 +89,49 @@ public class GameContext {
         return Collections.unmodifiableMap(entityMap);
     }
 
+    /**
+     * Return the component storage shared by all entities of this context.
+     * @return the archetype store
+     */
+    public ArchetypeStore getArchetypeStore() {
+        return archetypeStore;
+    }
+
+    /**
+     * Return the sparse set pools for components marked as sparse storage.
+     * @return the component pools
+     */
+    public ComponentPools getComponentPools() {
+        return componentPools;
+    }
+
+    /**
+     * Return the primitive storage for the linear state of all physics bodies.
+     * @return the body store
+     */
+    public BodyStore getBodyStore() {
+        return bodyStore;
+    }
+
+    /**
+     * Return a live view of all entities which have every one of the
+     * components c. The view is maintained as entities gain and lose
+     * components, so systems should create it once and keep it.
+     * @param c the component classes
+     * @return the query over all matching entities
+     */
+    @SafeVarargs
+    public final Query<GameEntity> query(Class<? extends Component>... c) {
+        return archetypeStore.query(c);
+    }
+
     /**
      * Return all entities which have the component c
      * @param c the component class
      * @return a list of entities which all have the component c attached.
      */
     public <T extends Component> List<GameEntity> getEntitiesWithComponent(Class<T> c) {
-        return getEntities().stream().filter(
-                        x -> x.hasComponent(c))
-                .toList();
+        return archetypeStore.<GameEntity>query(c).toList();
     }
 
     /**
@@ -97,8 +152,81 @@ public class GameContext {
      * @param e     the entity to be added.
      */
     public <T extends GameEntity> void addEntity(T e) {
-        e.setEntityId(entityCount.getAndIncrement());
+        e.setEntityId(entityIds.allocate());
         entityMap.put(e.getEntityId(), e);
+        e.attach(archetypeStore);
+    }
+
+    /**
+     * Get the command buffer of the calling thread. Systems record entity
+     * creation, destruction and component changes here while iterating,
+     * they are applied at the next call to {@link #playbackCommands()}.
+     * @return the command buffer of the calling thread
+     */
+    public CommandBuffer commands() {
+        return commands.get();
+    }
+
+    /**
+     * Apply the commands of every thread's buffer, buffer by buffer in the
+     * order the buffers were created. Must only be called on the render
+     * thread when no system is running, since created entities allocate
+     * their GL resources here.
+     */
+    public void playbackCommands() {
+        for (CommandBuffer b : commandBuffers) {
+            b.playback(this);
+        }
+    }
+
+    /**
+     * Queue an entity for removal, the entity stays alive until the next
+     * call to {@link #flushRemovals()} so it is safe to call this while
+     * systems are iterating.
+     *
+     * @param e the entity to be removed.
+     */
+    public void removeEntity(GameEntity e) {
+        if (!e.isRemoved() && entityIds.isAlive(e.getEntityId())) {
+            e.setRemoved(true);
+            removalQueue.offer(e);
+        }
+    }
+
+    /**
+     * Destroy every entity queued for removal and recycle their ids.
+     * Must only be called when no system is iterating over entities.
+     */
+    public void flushRemovals() {
+        while (!removalQueue.isEmpty()) {
+            GameEntity e = removalQueue.poll();
+            physicsSystem.removeEntity(e);
+            entityMap.remove(e.getEntityId());
+            e.detach();
+            e.shutdown();
+            entityIds.free(e.getEntityId());
+            LOGGER.debug("Entity removed: {}", e.getEntityId());
+        }
+    }
+
+    /**
+     * Get the entity with the id, or null if that entity has been removed.
+     * @param id the generational id of the entity
+     * @return the entity or null
+     */
+    public GameEntity getEntity(long id) {
+        if (!entityIds.isAlive(id)) {
+            return null;
+        }
+        return entityMap.get(id);
+    }
+
+    /**
+     * Get the number of live entities.
+     * @return the entity count
+     */
+    public int getEntityCount() {
+        return entityIds.size();
     }
 
     /**
@@ -114,6 +242,7 @@ public class GameContext {
     }
 
     public void shutdown() {
+        flushRemovals();
         getEntities().forEach(Entity::shutdown);
     }
 
@@ -25,6 +25,8 @@ public class SpawnData {
   private float spawnRate = 1.0f;
   private int maxSpawns;
   private final boolean isDynamic;
+  private final float lifetime;
+  private final boolean continuous;
 
   /**
    * Create a new spawn data instance.
@@ -37,6 +39,9 @@ public class SpawnData {
    * @param position initial position of this spawner
    * @param rotation initial rotation of this spawner
    * @param scale initial scale of this spawner
+   * @param lifetime seconds an entity lives before it despawns,
+   *                 zero or less to live forever
+   * @param continuous true to sweep the shape along its motion each step
    */
   private SpawnData(Vector3f rotation,
                     Vector2f position,
@@ -49,7 +54,9 @@ public class SpawnData {
                     float restitution,
                     float spawnRate,
                     int maxSpawns,
-                    boolean isDynamic) {
+                    boolean isDynamic,
+                    float lifetime,
+                    boolean continuous) {
     this.angularVelocity = Objects.requireNonNullElseGet(angularVelocity, () -> new Vector3f(0));
     this.initialVelocity = Objects.requireNonNullElseGet(initialVelocity, () -> new Vector2f(0));
     this.rotation = Objects.requireNonNullElseGet(rotation, () -> new Vector3f(0));
@@ -70,6 +77,8 @@ public class SpawnData {
     }
     this.maxSpawns = maxSpawns;
     this.isDynamic = isDynamic;
+    this.lifetime = lifetime;
+    this.continuous = continuous;
   }
 
   public Vector3f getAngularVelocity() {
@@ -125,6 +134,14 @@ public class SpawnData {
     return isDynamic;
   }
 
+  public float getLifetime() {
+    return lifetime;
+  }
+
+  public boolean isContinuous() {
+    return continuous;
+  }
+
   /**
    * Builder class.
    */
@@ -141,6 +158,8 @@ public class SpawnData {
     private float spawnRate = 1.0f;
     private int maxSpawns = 1;
     private boolean isDynamic;
+    private float lifetime;
+    private boolean continuous;
 
     /**
      * Create a new builder.
@@ -224,6 +243,24 @@ public class SpawnData {
       return this;
     }
 
+    public Builder setLifetime(float seconds) {
+      this.lifetime = seconds;
+      return this;
+    }
+
+    /**
+     * Use continuous collision detection for entities spawned from this
+     * data, for small bodies fast enough to pass through thin shapes in
+     * one physics step.
+     *
+     * @param continuous true to sweep the shape along its motion each step
+     * @return this builder
+     */
+    public Builder setContinuous(boolean continuous) {
+      this.continuous = continuous;
+      return this;
+    }
+
     /**
      * Build this builder.
      *
@@ -234,7 +271,7 @@ public class SpawnData {
       return new SpawnData(rotation, position, scale,
           angularVelocity, initialVelocity, shape,
           mass, gravitationFactor, restitution,
-          spawnRate, maxSpawns, isDynamic);
+          spawnRate, maxSpawns, isDynamic, lifetime, continuous);
     }
   }
 }
\ No newline at end of file
@@ -13,10 +13,9 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class RandomFireballSpawnDataFactory implements SpawnDataFactory {
 
-  private static final ThreadLocalRandom rand = ThreadLocalRandom.current();
-
   @Override
   public SpawnData create() {
+    ThreadLocalRandom rand = ThreadLocalRandom.current();
     Vector2f pos = new Vector2f(
             (float) rand.nextDouble(105.0),
             (float) rand.nextDouble(105.0));
@@ -35,6 +34,8 @@ public class RandomFireballSpawnDataFactory implements SpawnDataFactory {
                     (float) (rand.nextDouble(2f)),
                     (float) (rand.nextDouble(2f))))
         .setRestitution((float) (0.5f * Math.random()))
+        .setLifetime(10f)
+        .setContinuous(true)
         .build();
   }
 }
@@ -34,6 +34,7 @@ public class RandomShapeSpawnDataFactory implements SpawnDataFactory {
                         (rand.nextFloat()),
                         (rand.nextFloat())))
                 .setRestitution(.02f)
+                .setLifetime(30f)
                 .build();
     }
 }
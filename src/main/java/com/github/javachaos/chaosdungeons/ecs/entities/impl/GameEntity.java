@@ -7,6 +7,7 @@ import org.joml.Quaternionf;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
+import com.github.javachaos.chaosdungeons.collision.Polygon;
 import com.github.javachaos.chaosdungeons.ecs.components.CollisionComponent;
 import com.github.javachaos.chaosdungeons.ecs.components.GravityComponent;
 import com.github.javachaos.chaosdungeons.ecs.components.PhysicsComponent;
@@ -17,6 +18,7 @@ import com.github.javachaos.chaosdungeons.ecs.components.render.SpriteComponent;
 import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
 import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
 import com.github.javachaos.chaosdungeons.ecs.entities.factory.SpawnData;
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
 import com.github.javachaos.chaosdungeons.graphics.SpriteModel;
 import com.github.javachaos.chaosdungeons.graphics.Texture;
 
@@ -32,7 +34,10 @@ public abstract class GameEntity extends Entity {
   protected CollisionComponent collisionComponent;
   protected TransformComponent transformComponent;
   private GravityComponent grav;
+  private Body body;
   private boolean init;
+  private boolean removed;
+  private float age;
 
   private final GameContext gameContext;
 
@@ -101,19 +106,27 @@ public abstract class GameEntity extends Entity {
     transformComponent.setPosition(new Vector3f(spawnData.getPosition(), 0f));
     transformComponent.setScale(new Vector3f(spawnData.getScale(), 0f));
     if (texturePath != null && !texturePath.isEmpty()) {
-      textureMap.computeIfAbsent(texturePath, k ->  new Texture(texturePath));
+      textureMap.compute(texturePath, (k, t) -> t == null || t.isDeleted() ? new Texture(k) : t);
     }
     if (texturePath != null && !texturePath.isEmpty()) {
       sprite = new SpriteComponent(new SpriteModel(textureMap.get(texturePath), this));
     }
-    RenderComponent dcr = new DebugCollisionRenderer(spawnData.getShape());
+    // Spawn shapes are built around the spawn position, keep one copy in
+    // local space and let the collision transform place it in the world.
+    Polygon shape = spawnData.getShape().copy();
+    shape.translate(-spawnData.getPosition().x, -spawnData.getPosition().y);
+    RenderComponent dcr = new DebugCollisionRenderer(shape);
     grav = new GravityComponent(
         spawnData.getMass(),
         spawnData.getRestitution(),
         spawnData.getInitialVelocity(),
         spawnData.getAngularVelocity(),
         spawnData.getGravitationFactor());
-    collisionComponent = new CollisionComponent(spawnData.getShape());
+    collisionComponent = new CollisionComponent(shape);
+    collisionComponent.setContinuous(spawnData.isContinuous());
+    body = gameContext.getBodyStore().create();
+    transformComponent.setBody(body);
+    grav.setBody(body);
     addComponent(dcr);
     if (sprite != null) {
       addComponent(sprite);
@@ -124,6 +137,57 @@ public abstract class GameEntity extends Entity {
     init = true;
   }
 
+  /**
+   * Update this entity and queue it for removal once it outlives the
+   * lifetime given by its spawn data.
+   *
+   * @param dt the delta time
+   */
+  @Override
+  public void updateLogic(double dt) {
+    super.updateLogic(dt);
+    age += (float) dt;
+    if (getLifetime() > 0 && age >= getLifetime()) {
+      despawn();
+    }
+  }
+
+  /**
+   * The number of seconds this entity lives for, zero or less to live forever.
+   *
+   * @return the lifetime of this entity in seconds
+   */
+  protected float getLifetime() {
+    return spawnData.getLifetime();
+  }
+
+  /**
+   * Shut down this entity and release its physics body.
+   */
+  @Override
+  public void shutdown() {
+    super.shutdown();
+    if (body != null) {
+      body.release();
+    }
+  }
+
+  /**
+   * Queue this entity for removal from its game context, the removal is
+   * recorded in the command buffer of the calling thread.
+   */
+  public void despawn() {
+    gameContext.commands().destroy(this);
+  }
+
+  public boolean isRemoved() {
+    return removed;
+  }
+
+  public void setRemoved(boolean removed) {
+    this.removed = removed;
+  }
+
   public RenderComponent getSprite() {
     return sprite;
   }
@@ -141,7 +205,7 @@ public abstract class GameEntity extends Entity {
     if (!init) {
       throw new IllegalStateException("Game entity not yet initialized.");
     }
-    transformComponent.setPosition(new Vector3f(pos.x, pos.y, 0));
+    transformComponent.setPosition(pos.x, pos.y);
   }
 
   public TransformComponent getTransformComponent() {
@@ -149,14 +213,12 @@ public abstract class GameEntity extends Entity {
   }
 
   /**
-   * Render this entity.
+   * Render this entity, must be called on the render thread.
    *
    * @param dt the delta time.
    */
   public void render(double dt) {
-//    for(RenderComponent r : getRenderComponents()) {
-//      r.render(dt);
-//    }
+    renderComponents(dt);
   }
 
   public PhysicsComponent getPhysicsComponent() {
@@ -98,9 +98,22 @@ public class SpawnerEntity<T extends GameEntity> extends GameEntity {
     if (!spawnQueue.isEmpty()) {
       T e = spawnQueue.poll();
       spawn(e);
+    } else if (spawnData.getMaxSpawns() == 0) {
+      despawn(); // nothing left to spawn
     }
   }
 
+  /**
+   * The lifetime in the spawn data applies to the spawned entities,
+   * a spawner lives until it has nothing left to spawn.
+   *
+   * @return zero
+   */
+  @Override
+  protected float getLifetime() {
+    return 0f;
+  }
+
   private T newInstance() {
     if (spawnDataFactory != null) {
       return factory.create(spawnDataFactory.create(), gameContext);
@@ -109,8 +122,7 @@ public class SpawnerEntity<T extends GameEntity> extends GameEntity {
   }
 
   private void spawn(T entity) {
-    gameContext.addEntity(entity);
-    entity.init();
+    gameContext.commands().create(entity);
   }
 
   @Override
@@ -0,0 +1,247 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+/**
+ * A table of entities which all share the exact same set of component types.
+ * Each component type is stored in its own column and each entity occupies
+ * one row, so all components of one type for the archetype are contiguous.
+ */
+public class Archetype {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int[] NO_COLUMNS = new int[0];
+
+  private final List<Class<? extends Component>> types;
+  private final Set<Class<? extends Component>> typeSet;
+  private final Map<Class<?>, Integer> columnIndex;
+  private final BitSet signature = new BitSet();
+  private final Map<Class<?>, int[]> matchCache = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Archetype> addEdges = new HashMap<>();
+  private final Map<Class<?>, Archetype> removeEdges = new HashMap<>();
+  private Component[][] columns;
+  private Entity[] entities;
+  private int size;
+
+  /**
+   * Create a new archetype for the ordered list of component types.
+   *
+   * @param types the component types of this archetype, in column order
+   */
+  Archetype(List<Class<? extends Component>> types) {
+    this.types = List.copyOf(types);
+    this.typeSet = Collections.unmodifiableSet(new LinkedHashSet<>(types));
+    this.columnIndex = new HashMap<>(types.size() * 2);
+    for (int i = 0; i < types.size(); i++) {
+      columnIndex.put(types.get(i), i);
+      signature.or(ComponentRegistry.mask(types.get(i)));
+    }
+    this.columns = new Component[types.size()][INITIAL_CAPACITY];
+    this.entities = new Entity[INITIAL_CAPACITY];
+  }
+
+  public List<Class<? extends Component>> getTypes() {
+    return types;
+  }
+
+  public Set<Class<? extends Component>> getTypeSet() {
+    return typeSet;
+  }
+
+  /**
+   * Get the signature of this archetype, the OR of the registry masks of
+   * its component types. The returned set must not be modified.
+   *
+   * @return the signature
+   */
+  public BitSet getSignature() {
+    return signature;
+  }
+
+  public int getColumnCount() {
+    return types.size();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Entity getEntity(int row) {
+    return entities[row];
+  }
+
+  public Component getComponent(int row, int column) {
+    return columns[column][row];
+  }
+
+  /**
+   * Get the exact column for the component type, or -1 if this archetype
+   * does not store that type.
+   *
+   * @param type the concrete component type
+   * @return the column index or -1
+   */
+  public int indexOf(Class<?> type) {
+    Integer i = columnIndex.get(type);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * Get every column whose type is assignable to the queried type, the
+   * result is computed once per queried type and then cached since the
+   * column layout of an archetype never changes.
+   *
+   * @param type the queried type, may be a super type of stored components
+   * @return the matching columns in column order
+   */
+  public int[] match(Class<? extends Component> type) {
+    int[] m = matchCache.get(type);
+    if (m == null) {
+      int id = ComponentRegistry.id(type);
+      int[] found = new int[types.size()];
+      int n = 0;
+      if (signature.get(id)) {
+        for (int i = 0; i < types.size(); i++) {
+          if (ComponentRegistry.mask(types.get(i)).get(id)) {
+            found[n++] = i;
+          }
+        }
+      }
+      m = n == 0 ? NO_COLUMNS : Arrays.copyOf(found, n);
+      matchCache.put(type, m);
+    }
+    return m;
+  }
+
+  /**
+   * True if any column of this archetype is assignable to type.
+   *
+   * @param type the queried type
+   * @return true if this archetype matches the type
+   */
+  public boolean matches(Class<? extends Component> type) {
+    return signature.get(ComponentRegistry.id(type));
+  }
+
+  /**
+   * True if this archetype has every component type in mask.
+   *
+   * @param mask the ids of the required component types
+   * @return true if the signature of this archetype contains mask
+   */
+  public boolean matches(BitSet mask) {
+    return ComponentRegistry.containsAll(signature, mask);
+  }
+
+  /**
+   * Get the first component in row assignable to type.
+   *
+   * @param row the row of the entity
+   * @param type the queried type
+   * @param <T> the type of component
+   * @return the component or null if there is none
+   */
+  public <T extends Component> T getComponent(int row, Class<T> type) {
+    int[] m = match(type);
+    if (m.length == 0) {
+      return null;
+    }
+    return type.cast(columns[m[0]][row]);
+  }
+
+  /**
+   * Get all components in row assignable to type.
+   *
+   * @param row the row of the entity
+   * @param type the queried type
+   * @param <T> the type of component
+   * @return the list of matching components
+   */
+  public <T extends Component> List<T> getComponents(int row, Class<T> type) {
+    int[] m = match(type);
+    List<T> result = new ArrayList<>(m.length);
+    for (int c : m) {
+      result.add(type.cast(columns[c][row]));
+    }
+    return result;
+  }
+
+  Archetype getAddEdge(Class<?> type) {
+    return addEdges.get(type);
+  }
+
+  void putAddEdge(Class<?> type, Archetype a) {
+    addEdges.put(type, a);
+  }
+
+  Archetype getRemoveEdge(Class<?> type) {
+    return removeEdges.get(type);
+  }
+
+  void putRemoveEdge(Class<?> type, Archetype a) {
+    removeEdges.put(type, a);
+  }
+
+  void set(int row, int column, Component c) {
+    columns[column][row] = c;
+  }
+
+  /**
+   * Append a new empty row for entity e.
+   *
+   * @param e the entity
+   * @return the row of the entity
+   */
+  int addRow(Entity e) {
+    if (size == entities.length) {
+      int capacity = entities.length * 2;
+      entities = Arrays.copyOf(entities, capacity);
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = Arrays.copyOf(columns[i], capacity);
+      }
+    }
+    entities[size] = e;
+    return size++;
+  }
+
+  /**
+   * Remove a row by moving the last row into its place.
+   *
+   * @param row the row to remove
+   * @return the entity which now occupies row, or null if row was the last one
+   */
+  Entity removeRow(int row) {
+    int last = --size;
+    Entity moved = null;
+    if (row != last) {
+      entities[row] = entities[last];
+      for (Component[] column : columns) {
+        column[row] = column[last];
+      }
+      moved = entities[row];
+    }
+    entities[last] = null;
+    for (Component[] column : columns) {
+      column[last] = null;
+    }
+    return moved;
+  }
+
+  @Override
+  public String toString() {
+    return "Archetype" + types.stream().map(Class::getSimpleName).toList() + "[" + size + "]";
+  }
+}
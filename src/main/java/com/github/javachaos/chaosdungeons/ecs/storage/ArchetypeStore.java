@@ -0,0 +1,224 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+/**
+ * Archetype based component storage. Entities which share the same set of
+ * component types are stored together in one {@link Archetype} table, adding
+ * or removing a component moves the entity along a cached edge to the
+ * archetype for its new component set. Components of types marked with
+ * {@link com.github.javachaos.chaosdungeons.ecs.components.SparseStorage}
+ * are kept in {@link ComponentPools} instead and never move the entity.
+ */
+public class ArchetypeStore {
+
+  private static final Logger LOGGER = LogManager.getLogger(ArchetypeStore.class);
+
+  private final Archetype root;
+  private final Map<Set<Class<? extends Component>>, Archetype> archetypes = new HashMap<>();
+  private final List<Archetype> archetypeList = new ArrayList<>();
+  private final Map<BitSet, Query<?>> queries = new HashMap<>();
+  private final ComponentPools pools;
+
+  /**
+   * Create a new empty store with its own sparse set pools.
+   */
+  public ArchetypeStore() {
+    this(new ComponentPools());
+  }
+
+  /**
+   * Create a new empty store, components of sparse types are kept in pools.
+   *
+   * @param pools the pools for components marked as sparse
+   */
+  public ArchetypeStore(ComponentPools pools) {
+    this.pools = pools;
+    root = getOrCreate(Collections.emptyList());
+  }
+
+  public ComponentPools getPools() {
+    return pools;
+  }
+
+  /**
+   * Add an entity to this store along with its initial components.
+   *
+   * @param e the entity to add
+   * @param components the components e already has
+   */
+  public void add(Entity e, List<Component> components) {
+    if (e.getArchetype() != null) {
+      throw new IllegalStateException("Entity is already stored.");
+    }
+    e.setLocation(root, root.addRow(e));
+    for (Component c : components) {
+      addComponent(e, c);
+    }
+  }
+
+  /**
+   * Remove an entity and all of its components from this store.
+   *
+   * @param e the entity to remove
+   */
+  public void remove(Entity e) {
+    Archetype a = e.getArchetype();
+    if (a == null) {
+      return;
+    }
+    pools.removeAll(e);
+    Entity moved = a.removeRow(e.getRow());
+    if (moved != null) {
+      moved.setLocation(a, e.getRow());
+    }
+    e.setLocation(null, -1);
+  }
+
+  /**
+   * Add a component to the entity e, if e already has a component of the
+   * exact same type it is replaced.
+   *
+   * @param e the entity
+   * @param c the component to add
+   */
+  public void addComponent(Entity e, Component c) {
+    Archetype from = e.getArchetype();
+    Class<? extends Component> type = c.getClass();
+    if (ComponentRegistry.isSparse(type)) {
+      pools.put(e, c);
+      e.refreshSignature();
+      return;
+    }
+    int col = from.indexOf(type);
+    if (col >= 0) {
+      from.set(e.getRow(), col, c);
+      return;
+    }
+    Archetype to = from.getAddEdge(type);
+    if (to == null) {
+      List<Class<? extends Component>> types = new ArrayList<>(from.getTypes());
+      types.add(type);
+      to = getOrCreate(types);
+      from.putAddEdge(type, to);
+    }
+    int row = move(e, from, to);
+    to.set(row, to.indexOf(type), c);
+  }
+
+  /**
+   * Remove the component c from the entity e.
+   *
+   * @param e the entity
+   * @param c the component to remove
+   * @return true if the component was removed
+   */
+  public boolean removeComponent(Entity e, Component c) {
+    Archetype from = e.getArchetype();
+    Class<? extends Component> type = c.getClass();
+    if (ComponentRegistry.isSparse(type)) {
+      boolean removed = pools.remove(e, c);
+      e.refreshSignature();
+      return removed;
+    }
+    int col = from.indexOf(type);
+    if (col < 0 || from.getComponent(e.getRow(), col) != c) {
+      return false;
+    }
+    Archetype to = from.getRemoveEdge(type);
+    if (to == null) {
+      List<Class<? extends Component>> types = new ArrayList<>(from.getTypes());
+      types.remove(type);
+      to = getOrCreate(types);
+      from.putRemoveEdge(type, to);
+    }
+    move(e, from, to);
+    return true;
+  }
+
+  /**
+   * Get the live query over all entities which have a component assignable
+   * to each of the types. Queries are built once, cached by the mask of the
+   * type ids, and then kept up to date as new archetypes are created.
+   *
+   * @param types the component types
+   * @param <E> the type of entity stored
+   * @return the query
+   */
+  @SafeVarargs
+  @SuppressWarnings("unchecked")
+  public final <E extends Entity> Query<E> query(Class<? extends Component>... types) {
+    BitSet mask = new BitSet();
+    for (Class<? extends Component> t : types) {
+      mask.set(ComponentRegistry.id(t));
+    }
+    Query<?> q = queries.get(mask);
+    if (q == null) {
+      Query<?> created = new Query<>(mask, pools);
+      archetypeList.forEach(created::offer);
+      queries.put(mask, created);
+      q = created;
+    }
+    return (Query<E>) q;
+  }
+
+  /**
+   * Get all archetypes which have a component assignable to type.
+   *
+   * @param type the component type
+   * @return the matching archetypes
+   */
+  public List<Archetype> getArchetypes(Class<? extends Component> type) {
+    return query(type).getArchetypes();
+  }
+
+  public List<Archetype> getArchetypes() {
+    return Collections.unmodifiableList(archetypeList);
+  }
+
+  private int move(Entity e, Archetype from, Archetype to) {
+    int oldRow = e.getRow();
+    int newRow = to.addRow(e);
+    for (int i = 0; i < from.getColumnCount(); i++) {
+      int j = to.indexOf(from.getTypes().get(i));
+      if (j >= 0) {
+        to.set(newRow, j, from.getComponent(oldRow, i));
+      }
+    }
+    Entity moved = from.removeRow(oldRow);
+    if (moved != null) {
+      moved.setLocation(from, oldRow);
+    }
+    e.setLocation(to, newRow);
+    return newRow;
+  }
+
+  private Archetype getOrCreate(List<Class<? extends Component>> types) {
+    Set<Class<? extends Component>> key = new HashSet<>(types);
+    Archetype a = archetypes.get(key);
+    if (a == null) {
+      a = new Archetype(types);
+      archetypes.put(a.getTypeSet(), a);
+      archetypeList.add(a);
+      for (Query<?> q : queries.values()) {
+        q.offer(a);
+      }
+      LOGGER.debug("New archetype: {}", a);
+    }
+    return a;
+  }
+}
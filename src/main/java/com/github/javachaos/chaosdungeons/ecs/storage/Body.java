@@ -0,0 +1,126 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+/**
+ * Handle to one body in a {@link BodyStore}. The handle stays valid while
+ * the store moves the body around to keep its arrays dense.
+ */
+public final class Body {
+
+  private final BodyStore store;
+  private int index;
+  private boolean released;
+
+  Body(BodyStore store, int index) {
+    this.store = store;
+    this.index = index;
+  }
+
+  /**
+   * Create a body in its own single body store, used by components which
+   * are not yet bound to a shared store.
+   *
+   * @return a new detached body
+   */
+  public static Body detached() {
+    return new BodyStore(1).create();
+  }
+
+  public BodyStore getStore() {
+    return store;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  void setIndex(int index) {
+    this.index = index;
+  }
+
+  /**
+   * Remove this body from its store, calling this more than once has no
+   * effect.
+   */
+  public void release() {
+    if (!released) {
+      store.destroy(this);
+      released = true;
+    }
+  }
+
+  public boolean isReleased() {
+    return released;
+  }
+
+  public float getX() {
+    return store.getX(index);
+  }
+
+  public float getY() {
+    return store.getY(index);
+  }
+
+  public void setPosition(float x, float y) {
+    store.setPosition(index, x, y);
+  }
+
+  public float getVx() {
+    return store.getVx(index);
+  }
+
+  public float getVy() {
+    return store.getVy(index);
+  }
+
+  public void setVelocity(float vx, float vy) {
+    store.setVelocity(index, vx, vy);
+  }
+
+  public float getInvMass() {
+    return store.getInvMass(index);
+  }
+
+  public void setInvMass(float invMass) {
+    store.setInvMass(index, invMass);
+  }
+
+  public float getRestitution() {
+    return store.getRestitution(index);
+  }
+
+  public void setRestitution(float restitution) {
+    store.setRestitution(index, restitution);
+  }
+
+  public float getGravity() {
+    return store.getGravity(index);
+  }
+
+  public void setGravity(float gravity) {
+    store.setGravity(index, gravity);
+  }
+
+  public boolean isFixed() {
+    return store.isFixed(index);
+  }
+
+  public void setFixed(boolean fixed) {
+    store.setFixed(index, fixed);
+  }
+
+  public boolean isAsleep() {
+    return store.isAsleep(index);
+  }
+
+  public void sleep() {
+    store.sleep(index);
+  }
+
+  public void wake() {
+    store.wake(index);
+  }
+
+  public void disturb() {
+    store.disturb(index);
+  }
+}
@@ -0,0 +1,308 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Structure of arrays storage for the linear state of physics bodies. Each
+ * field of every body lives in its own primitive array so the integrator
+ * can walk the bodies linearly without touching any objects.
+ * Bodies are kept dense, removing a body moves the last body into its slot
+ * and updates that body's handle. Sleeping bodies are skipped by the
+ * integrator, see {@link #sleep(int)}.
+ */
+public class BodyStore {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final float GRAVITATIONAL_FACTOR = -9.8f;
+  private static final float DEFAULT_SLEEP_VELOCITY = 0.05f;
+
+  private float[] x;
+  private float[] y;
+  private float[] vx;
+  private float[] vy;
+  private float[] invMass;
+  private float[] restitution;
+  private float[] gravity;
+  private boolean[] fixed;
+  private boolean[] asleep;
+  private int[] restSteps;
+  private Body[] bodies;
+  private int size;
+  private float sleepVelocity = DEFAULT_SLEEP_VELOCITY;
+
+  public BodyStore() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Create a new body store.
+   *
+   * @param capacity the initial number of bodies this store can hold
+   */
+  public BodyStore(int capacity) {
+    int c = Math.max(1, capacity);
+    x = new float[c];
+    y = new float[c];
+    vx = new float[c];
+    vy = new float[c];
+    invMass = new float[c];
+    restitution = new float[c];
+    gravity = new float[c];
+    fixed = new boolean[c];
+    asleep = new boolean[c];
+    restSteps = new int[c];
+    bodies = new Body[c];
+  }
+
+  /**
+   * Create a new body at the origin with no velocity.
+   *
+   * @return the handle of the new body
+   */
+  public Body create() {
+    if (size == bodies.length) {
+      grow(size * 2);
+    }
+    int i = size++;
+    x[i] = 0f;
+    y[i] = 0f;
+    vx[i] = 0f;
+    vy[i] = 0f;
+    invMass[i] = 0f;
+    restitution[i] = 0f;
+    gravity[i] = 0f;
+    fixed[i] = false;
+    asleep[i] = false;
+    restSteps[i] = 0;
+    Body b = new Body(this, i);
+    bodies[i] = b;
+    return b;
+  }
+
+  /**
+   * Remove the body from this store, the last body is moved into its slot.
+   *
+   * @param b the body to remove
+   */
+  void destroy(Body b) {
+    int i = b.getIndex();
+    int last = --size;
+    if (i != last) {
+      x[i] = x[last];
+      y[i] = y[last];
+      vx[i] = vx[last];
+      vy[i] = vy[last];
+      invMass[i] = invMass[last];
+      restitution[i] = restitution[last];
+      gravity[i] = gravity[last];
+      fixed[i] = fixed[last];
+      asleep[i] = asleep[last];
+      restSteps[i] = restSteps[last];
+      bodies[i] = bodies[last];
+      bodies[i].setIndex(i);
+    }
+    bodies[last] = null;
+  }
+
+  /**
+   * Integrate every body by one step.
+   *
+   * @param dt the time step
+   */
+  public void integrate(float dt) {
+    integrate(dt, 0, size);
+  }
+
+  /**
+   * Integrate every body by one step, splitting the bodies into chunks
+   * which are integrated on pool. Each body only reads and writes its own
+   * slot so the result is the same as {@link #integrate(float)}.
+   *
+   * @param dt the time step
+   * @param pool the pool to run on
+   * @param chunk the number of bodies integrated by one task
+   */
+  public void integrate(float dt, ForkJoinPool pool, int chunk) {
+    if (size <= chunk) {
+      integrate(dt, 0, size);
+    } else {
+      pool.invoke(new RangeTask((from, to) -> integrate(dt, from, to), 0, size, chunk));
+    }
+  }
+
+  /**
+   * Integrate the bodies in [from, to) by one step. Bodies are independent
+   * so disjoint ranges may be integrated in any order. Sleeping bodies are
+   * skipped, every other body counts the steps in a row it moved slower
+   * than the sleep velocity.
+   *
+   * @param dt the time step
+   * @param from the first body
+   * @param to one past the last body
+   */
+  public void integrate(float dt, int from, int to) {
+    float sleep2 = sleepVelocity * sleepVelocity;
+    for (int i = from; i < to; i++) {
+      if (asleep[i]) {
+        continue;
+      }
+      float px = x[i];
+      float py = y[i];
+      x[i] = px + vx[i] * dt;
+      y[i] = py + vy[i] * dt;
+      vx[i] = (x[i] - px) / dt;
+      vy[i] = (y[i] - py) / dt;
+      if (vx[i] * vx[i] + vy[i] * vy[i] < sleep2) {
+        restSteps[i]++;
+      } else {
+        restSteps[i] = 0;
+      }
+      if (!fixed[i]) {
+        vy[i] += gravity[i] * GRAVITATIONAL_FACTOR * invMass[i];
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Body getBody(int i) {
+    return bodies[i];
+  }
+
+  public float getX(int i) {
+    return x[i];
+  }
+
+  public float getY(int i) {
+    return y[i];
+  }
+
+  public void setPosition(int i, float px, float py) {
+    x[i] = px;
+    y[i] = py;
+  }
+
+  public float getVx(int i) {
+    return vx[i];
+  }
+
+  public float getVy(int i) {
+    return vy[i];
+  }
+
+  public void setVelocity(int i, float vxi, float vyi) {
+    vx[i] = vxi;
+    vy[i] = vyi;
+  }
+
+  public float getInvMass(int i) {
+    return invMass[i];
+  }
+
+  public void setInvMass(int i, float m) {
+    invMass[i] = m;
+  }
+
+  public float getRestitution(int i) {
+    return restitution[i];
+  }
+
+  public void setRestitution(int i, float r) {
+    restitution[i] = r;
+  }
+
+  public float getGravity(int i) {
+    return gravity[i];
+  }
+
+  public void setGravity(int i, float g) {
+    gravity[i] = g;
+  }
+
+  public boolean isFixed(int i) {
+    return fixed[i];
+  }
+
+  public void setFixed(int i, boolean f) {
+    fixed[i] = f;
+  }
+
+  public boolean isAsleep(int i) {
+    return asleep[i];
+  }
+
+  /**
+   * Put body i to sleep, its velocity is cleared and it is skipped by the
+   * integrator until it is woken.
+   *
+   * @param i the body
+   */
+  public void sleep(int i) {
+    asleep[i] = true;
+    vx[i] = 0f;
+    vy[i] = 0f;
+  }
+
+  /**
+   * Wake body i. The count of steps it has been at rest is kept, it is
+   * reset by the integrator once the body actually moves.
+   *
+   * @param i the body
+   */
+  public void wake(int i) {
+    asleep[i] = false;
+  }
+
+  /**
+   * Wake body i and start its count of steps at rest over, for a body
+   * which lost what it rested on and must not go straight back to sleep
+   * before it starts to fall.
+   *
+   * @param i the body
+   */
+  public void disturb(int i) {
+    asleep[i] = false;
+    restSteps[i] = 0;
+  }
+
+  /**
+   * Get the number of steps in a row body i moved slower than the sleep
+   * velocity.
+   *
+   * @param i the body
+   * @return the number of steps at rest
+   */
+  public int getRestSteps(int i) {
+    return restSteps[i];
+  }
+
+  public float getSleepVelocity() {
+    return sleepVelocity;
+  }
+
+  /**
+   * Set the speed below which a body counts as at rest.
+   *
+   * @param sleepVelocity the sleep velocity
+   */
+  public void setSleepVelocity(float sleepVelocity) {
+    this.sleepVelocity = sleepVelocity;
+  }
+
+  private void grow(int capacity) {
+    x = Arrays.copyOf(x, capacity);
+    y = Arrays.copyOf(y, capacity);
+    vx = Arrays.copyOf(vx, capacity);
+    vy = Arrays.copyOf(vy, capacity);
+    invMass = Arrays.copyOf(invMass, capacity);
+    restitution = Arrays.copyOf(restitution, capacity);
+    gravity = Arrays.copyOf(gravity, capacity);
+    fixed = Arrays.copyOf(fixed, capacity);
+    asleep = Arrays.copyOf(asleep, capacity);
+    restSteps = Arrays.copyOf(restSteps, capacity);
+    bodies = Arrays.copyOf(bodies, capacity);
+  }
+}
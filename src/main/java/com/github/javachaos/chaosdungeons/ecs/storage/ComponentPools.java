@@ -0,0 +1,169 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
+import com.github.javachaos.chaosdungeons.ecs.components.SparseStorage;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+/**
+ * The sparse set pools of every component type marked with
+ * {@link SparseStorage}, one pool per concrete type indexed by the id of
+ * the type in {@link ComponentRegistry}.
+ */
+public class ComponentPools {
+
+  private SparseSet<?>[] byId = new SparseSet<?>[16];
+  private final List<SparseSet<?>> pools = new ArrayList<>();
+
+  /**
+   * Get the pool for a concrete component type, creating it if needed.
+   *
+   * @param type the component type
+   * @param <T> the component type
+   * @return the pool
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Component> SparseSet<T> pool(Class<T> type) {
+    int id = ComponentRegistry.id(type);
+    if (id >= byId.length) {
+      SparseSet<?>[] grown = new SparseSet<?>[Math.max(id + 1, byId.length * 2)];
+      System.arraycopy(byId, 0, grown, 0, byId.length);
+      byId = grown;
+    }
+    SparseSet<?> p = byId[id];
+    if (p == null) {
+      p = new SparseSet<>(type);
+      byId[id] = p;
+      pools.add(p);
+    }
+    return (SparseSet<T>) p;
+  }
+
+  public List<SparseSet<?>> getPools() {
+    return Collections.unmodifiableList(pools);
+  }
+
+  public int poolCount() {
+    return pools.size();
+  }
+
+  public SparseSet<?> getPool(int i) {
+    return pools.get(i);
+  }
+
+  /**
+   * Put the component c of the entity e into the pool for its type.
+   *
+   * @param e the entity
+   * @param c the component
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Component> void put(Entity e, T c) {
+    pool((Class<T>) c.getClass()).put(e, c);
+  }
+
+  /**
+   * Remove the component c of the entity e from its pool.
+   *
+   * @param e the entity
+   * @param c the component
+   * @return true if c was removed
+   */
+  public boolean remove(Entity e, Component c) {
+    SparseSet<?> p = pool(c.getClass());
+    if (p.get(e) != c) {
+      return false;
+    }
+    p.remove(e);
+    return true;
+  }
+
+  /**
+   * Remove every pooled component of the entity e.
+   *
+   * @param e the entity
+   */
+  public void removeAll(Entity e) {
+    for (int i = 0; i < pools.size(); i++) {
+      pools.get(i).remove(e);
+    }
+  }
+
+  /**
+   * Get the first pooled component of e assignable to type.
+   *
+   * @param e the entity
+   * @param type the queried type
+   * @param <T> the component type
+   * @return the component or null if there is none
+   */
+  public <T extends Component> T getComponent(Entity e, Class<T> type) {
+    int id = ComponentRegistry.id(type);
+    for (int i = 0; i < pools.size(); i++) {
+      SparseSet<?> p = pools.get(i);
+      if (ComponentRegistry.mask(p.getType()).get(id)) {
+        Component c = p.get(e);
+        if (c != null) {
+          return type.cast(c);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Add every pooled component of e assignable to type to out.
+   *
+   * @param e the entity
+   * @param type the queried type
+   * @param out the list to add to
+   * @param <T> the component type
+   */
+  public <T extends Component> void getComponents(Entity e, Class<T> type, List<? super T> out) {
+    int id = ComponentRegistry.id(type);
+    for (int i = 0; i < pools.size(); i++) {
+      SparseSet<?> p = pools.get(i);
+      if (ComponentRegistry.mask(p.getType()).get(id)) {
+        Component c = p.get(e);
+        if (c != null) {
+          out.add(type.cast(c));
+        }
+      }
+    }
+  }
+
+  /**
+   * Add every pooled component of e to out.
+   *
+   * @param e the entity
+   * @param out the list to add to
+   */
+  public void getComponents(Entity e, List<Component> out) {
+    for (int i = 0; i < pools.size(); i++) {
+      Component c = pools.get(i).get(e);
+      if (c != null) {
+        out.add(c);
+      }
+    }
+  }
+
+  /**
+   * OR the masks of every pooled component type of e into signature.
+   *
+   * @param e the entity
+   * @param signature the signature to add to
+   */
+  public void addSignature(Entity e, BitSet signature) {
+    for (int i = 0; i < pools.size(); i++) {
+      SparseSet<?> p = pools.get(i);
+      if (p.has(e)) {
+        signature.or(ComponentRegistry.mask(p.getType()));
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.Arrays;
+
+/**
+ * Allocates generational entity ids. An id packs a slot index in the low 32
+ * bits and the generation of that slot in the high 32 bits, freed slots are
+ * reused and their generation bumped so stale ids can be detected.
+ */
+public class EntityIdPool {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] generations = new int[INITIAL_CAPACITY];
+  private int[] freeList = new int[INITIAL_CAPACITY];
+  private int freeCount;
+  private int nextIndex;
+
+  /**
+   * Allocate a new id, reusing a freed slot if one is available.
+   *
+   * @return the new id
+   */
+  public long allocate() {
+    int index;
+    if (freeCount > 0) {
+      index = freeList[--freeCount];
+    } else {
+      index = nextIndex++;
+      if (index == generations.length) {
+        generations = Arrays.copyOf(generations, index * 2);
+      }
+    }
+    return pack(index, generations[index]);
+  }
+
+  /**
+   * Free the id so its slot can be reused.
+   *
+   * @param id the id to free
+   * @return true if id was alive and is now freed
+   */
+  public boolean free(long id) {
+    if (!isAlive(id)) {
+      return false;
+    }
+    int index = index(id);
+    generations[index]++;
+    if (freeCount == freeList.length) {
+      freeList = Arrays.copyOf(freeList, freeCount * 2);
+    }
+    freeList[freeCount++] = index;
+    return true;
+  }
+
+  /**
+   * True if the id has been allocated and not yet freed.
+   *
+   * @param id the id
+   * @return true if id is alive
+   */
+  public boolean isAlive(long id) {
+    int index = index(id);
+    return index >= 0 && index < nextIndex && generations[index] == generation(id);
+  }
+
+  /**
+   * The number of ids currently alive.
+   *
+   * @return the number of live ids
+   */
+  public int size() {
+    return nextIndex - freeCount;
+  }
+
+  /**
+   * The number of slots ever allocated, every live index is below this.
+   *
+   * @return the slot capacity in use
+   */
+  public int capacity() {
+    return nextIndex;
+  }
+
+  public static int index(long id) {
+    return (int) id;
+  }
+
+  public static int generation(long id) {
+    return (int) (id >>> 32);
+  }
+
+  public static long pack(int index, int generation) {
+    return ((long) generation << 32) | (index & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,186 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+/**
+ * A live view over every entity which has all the queried component types.
+ * The set of matching archetypes is kept up to date by the
+ * {@link ArchetypeStore} as new archetypes are created, so iterating a query
+ * never filters entities and allocates nothing. Entities which only match
+ * because of components held in {@link ComponentPools} are visited after the
+ * archetypes, by walking the pools of the matching types.
+ *
+ * @param <E> the type of entity stored
+ */
+public class Query<E extends Entity> {
+
+  private final BitSet mask;
+  private final List<Archetype> archetypes = new ArrayList<>();
+  private final ComponentPools pools;
+
+  Query(BitSet mask, ComponentPools pools) {
+    this.mask = (BitSet) mask.clone();
+    this.pools = pools;
+  }
+
+  /**
+   * True if the signature of the archetype a contains the mask of
+   * this query.
+   *
+   * @param a the archetype to test
+   * @return true if a matches this query
+   */
+  boolean matches(Archetype a) {
+    return a.matches(mask);
+  }
+
+  void offer(Archetype a) {
+    if (matches(a)) {
+      archetypes.add(a);
+    }
+  }
+
+  /**
+   * Get the mask of this query, the ids of the queried component types
+   * as given by {@link ComponentRegistry}.
+   *
+   * @return a copy of the mask
+   */
+  public BitSet getMask() {
+    return (BitSet) mask.clone();
+  }
+
+  public List<Archetype> getArchetypes() {
+    return Collections.unmodifiableList(archetypes);
+  }
+
+  /**
+   * Count the entities currently matching this query.
+   *
+   * @return the number of matching entities
+   */
+  public int size() {
+    int n = 0;
+    for (int i = 0; i < archetypes.size(); i++) {
+      n += archetypes.get(i).size();
+    }
+    for (int i = 0; i < pools.poolCount(); i++) {
+      SparseSet<?> p = pools.getPool(i);
+      for (int slot = 0; relevant(p) && slot < p.size(); slot++) {
+        if (matchesSparse(p.getEntity(slot), i)) {
+          n++;
+        }
+      }
+    }
+    return n;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Call action for every matching entity, archetype by archetype.
+   *
+   * @param action the action to perform
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(Consumer<? super E> action) {
+    for (int i = 0; i < archetypes.size(); i++) {
+      Archetype a = archetypes.get(i);
+      for (int row = 0; row < a.size(); row++) {
+        action.accept((E) a.getEntity(row));
+      }
+    }
+    forEachSparse(action);
+  }
+
+  /**
+   * Visit the entities which only match this query because of their pooled
+   * components, entities whose archetype matches were already visited.
+   */
+  @SuppressWarnings("unchecked")
+  private void forEachSparse(Consumer<? super E> action) {
+    for (int i = 0; i < pools.poolCount(); i++) {
+      SparseSet<?> p = pools.getPool(i);
+      for (int slot = 0; relevant(p) && slot < p.size(); slot++) {
+        Entity e = p.getEntity(slot);
+        if (matchesSparse(e, i)) {
+          action.accept((E) e);
+        }
+      }
+    }
+  }
+
+  private boolean relevant(SparseSet<?> p) {
+    return ComponentRegistry.mask(p.getType()).intersects(mask);
+  }
+
+  /**
+   * True if e, taken from the pool at index pool, matches this query but its
+   * archetype does not, and no earlier relevant pool also holds e.
+   */
+  private boolean matchesSparse(Entity e, int pool) {
+    if (e.getArchetype().matches(mask)
+        || !ComponentRegistry.containsAll(e.getSignature(), mask)) {
+      return false;
+    }
+    for (int j = 0; j < pool; j++) {
+      SparseSet<?> p = pools.getPool(j);
+      if (relevant(p) && p.has(e)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Call action for every matching entity on pool, each archetype is split
+   * into chunks of at most chunk rows. The action must only touch the
+   * entity it is given and must not add, remove or restructure entities.
+   *
+   * @param pool the pool to run on
+   * @param chunk the number of entities handled by one task
+   * @param action the action to perform
+   */
+  @SuppressWarnings("unchecked")
+  public void parallelForEach(ForkJoinPool pool, int chunk, Consumer<? super E> action) {
+    if (size() <= chunk) {
+      forEach(action);
+      return;
+    }
+    ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[archetypes.size()];
+    for (int i = 0; i < archetypes.size(); i++) {
+      Archetype a = archetypes.get(i);
+      tasks[i] = pool.submit(new RangeTask((from, to) -> {
+        for (int row = from; row < to; row++) {
+          action.accept((E) a.getEntity(row));
+        }
+      }, 0, a.size(), chunk));
+    }
+    for (ForkJoinTask<?> t : tasks) {
+      t.join();
+    }
+    forEachSparse(action);
+  }
+
+  /**
+   * Copy the matching entities into a new list.
+   *
+   * @return a snapshot of the matching entities
+   */
+  public List<E> toList() {
+    List<E> result = new ArrayList<>(size());
+    forEach(result::add);
+    return result;
+  }
+}
@@ -0,0 +1,50 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork join task which splits the range [from, to) in half until it is at
+ * most one chunk long and then runs the body over each chunk. Every index
+ * is visited exactly once, so when the body treats indices independently the
+ * result does not depend on how many threads run the task.
+ */
+public final class RangeTask extends RecursiveAction {
+
+  /**
+   * Work done over one chunk of a range.
+   */
+  @FunctionalInterface
+  public interface Chunk {
+    void run(int from, int to);
+  }
+
+  private final transient Chunk body;
+  private final int from;
+  private final int to;
+  private final int chunk;
+
+  /**
+   * Create a task over [from, to).
+   *
+   * @param body the work done over each chunk
+   * @param from the first index
+   * @param to one past the last index
+   * @param chunk the most indices run by one leaf task
+   */
+  public RangeTask(Chunk body, int from, int to, int chunk) {
+    this.body = body;
+    this.from = from;
+    this.to = to;
+    this.chunk = Math.max(1, chunk);
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= chunk) {
+      body.run(from, to);
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    invokeAll(new RangeTask(body, from, mid, chunk), new RangeTask(body, mid, to, chunk));
+  }
+}
@@ -0,0 +1,157 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import java.util.Arrays;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+/**
+ * Pool of the components of one type. The sparse array maps the index of an
+ * entity id, see {@link EntityIdPool#index(long)}, to a slot in the dense
+ * arrays, so add, remove and lookup are O(1) and the components are
+ * contiguous for iteration. Removing moves the last component into the
+ * freed slot.
+ *
+ * @param <T> the component type
+ */
+public class SparseSet<T extends Component> {
+
+  private static final int ABSENT = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Class<T> type;
+  private int[] sparse;
+  private Entity[] entities;
+  private Component[] dense;
+  private int size;
+
+  /**
+   * Create a new empty pool.
+   *
+   * @param type the component type held by this pool
+   */
+  public SparseSet(Class<T> type) {
+    this.type = type;
+    this.sparse = new int[INITIAL_CAPACITY];
+    Arrays.fill(sparse, ABSENT);
+    this.entities = new Entity[INITIAL_CAPACITY];
+    this.dense = new Component[INITIAL_CAPACITY];
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * True if e has a component in this pool.
+   *
+   * @param e the entity
+   * @return true if e is in this pool
+   */
+  public boolean has(Entity e) {
+    return slot(e) != ABSENT;
+  }
+
+  /**
+   * Get the component of e.
+   *
+   * @param e the entity
+   * @return the component or null if e has none in this pool
+   */
+  public T get(Entity e) {
+    int s = slot(e);
+    return s == ABSENT ? null : type.cast(dense[s]);
+  }
+
+  /**
+   * Set the component of e, replacing any component e already has.
+   *
+   * @param e the entity
+   * @param c the component
+   * @return the replaced component or null
+   */
+  public T put(Entity e, T c) {
+    int key = key(e);
+    if (key >= sparse.length) {
+      int old = sparse.length;
+      sparse = Arrays.copyOf(sparse, Math.max(key + 1, old * 2));
+      Arrays.fill(sparse, old, sparse.length, ABSENT);
+    }
+    int s = sparse[key];
+    if (s != ABSENT) {
+      T replaced = type.cast(dense[s]);
+      dense[s] = c;
+      return replaced;
+    }
+    if (size == dense.length) {
+      dense = Arrays.copyOf(dense, size * 2);
+      entities = Arrays.copyOf(entities, size * 2);
+    }
+    sparse[key] = size;
+    entities[size] = e;
+    dense[size] = c;
+    size++;
+    return null;
+  }
+
+  /**
+   * Remove the component of e.
+   *
+   * @param e the entity
+   * @return the removed component or null if e had none
+   */
+  public T remove(Entity e) {
+    int s = slot(e);
+    if (s == ABSENT) {
+      return null;
+    }
+    T removed = type.cast(dense[s]);
+    int last = --size;
+    if (s != last) {
+      dense[s] = dense[last];
+      entities[s] = entities[last];
+      sparse[key(entities[s])] = s;
+    }
+    dense[last] = null;
+    entities[last] = null;
+    sparse[key(e)] = ABSENT;
+    return removed;
+  }
+
+  /**
+   * Get the entity in a dense slot.
+   *
+   * @param i the slot, less than {@link #size()}
+   * @return the entity
+   */
+  public Entity getEntity(int i) {
+    return entities[i];
+  }
+
+  /**
+   * Get the component in a dense slot.
+   *
+   * @param i the slot, less than {@link #size()}
+   * @return the component
+   */
+  public T getComponent(int i) {
+    return type.cast(dense[i]);
+  }
+
+  private int slot(Entity e) {
+    int key = key(e);
+    if (key >= sparse.length) {
+      return ABSENT;
+    }
+    int s = sparse[key];
+    return s != ABSENT && entities[s] == e ? s : ABSENT;
+  }
+
+  private static int key(Entity e) {
+    return EntityIdPool.index(e.getEntityId());
+  }
+}
@@ -21,6 +21,11 @@ public class LoadSystem extends System {
     //Unused
   }
 
+  @Override
+  public boolean isIdle() {
+    return true;
+  }
+
   /**
    * Call the init function for all entities in all systems.
    */
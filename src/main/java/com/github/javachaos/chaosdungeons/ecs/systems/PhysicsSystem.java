@@ -1,21 +1,38 @@
 package com.github.javachaos.chaosdungeons.ecs.systems;
 
+import com.github.javachaos.chaosdungeons.collision.AabbTree;
+import com.github.javachaos.chaosdungeons.collision.Broadphase;
 import com.github.javachaos.chaosdungeons.collision.Collision;
+import com.github.javachaos.chaosdungeons.collision.Islands;
+import com.github.javachaos.chaosdungeons.collision.PairCache;
 import com.github.javachaos.chaosdungeons.collision.QuadTree;
 import com.github.javachaos.chaosdungeons.collision.Solver;
+import com.github.javachaos.chaosdungeons.collision.SpatialHashGrid;
+import com.github.javachaos.chaosdungeons.collision.SweepAndPrune;
+import com.github.javachaos.chaosdungeons.collision.Transform;
 import com.github.javachaos.chaosdungeons.constants.Constants;
+import com.github.javachaos.chaosdungeons.ecs.components.CollisionComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
 import com.github.javachaos.chaosdungeons.ecs.components.PhysicsComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
 import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
+import com.github.javachaos.chaosdungeons.ecs.storage.BodyStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.EntityIdPool;
+import com.github.javachaos.chaosdungeons.ecs.storage.Query;
 import com.github.javachaos.chaosdungeons.geometry.GJKDetector2D;
 import com.github.javachaos.chaosdungeons.gui.GameWindow;
 import com.github.javachaos.chaosdungeons.gui.WindowSize;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joml.Vector3f;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Physics system class.
@@ -24,16 +41,40 @@ import java.util.stream.Collectors;
 public class PhysicsSystem extends System {
 
   private static final Logger LOGGER = LogManager.getLogger(PhysicsSystem.class);
+  private static final float FIXED_TIME_STEP = .0016F; // 16 milliseconds
+  private static final int CHUNK_SIZE = 256;
+  // How far around a removed body the bodies resting on it are woken.
+  private static final float WAKE_MARGIN = 0.1f;
+  private static final Set<Class<? extends Component>> READS = Set.of(CollisionComponent.class);
+  private static final Set<Class<? extends Component>> WRITES = Set.of(
+      PhysicsComponent.class, TransformComponent.class, CollisionComponent.class);
   float prevX;
   float prevY;
   float maxX = Float.MIN_VALUE;
   float maxY = Float.MIN_VALUE;
-  private QuadTree<GameEntity> collisionQuadtree;
+  private Broadphase<GameEntity> broadphase;
   private final Solver solver;
+  private final Query<GameEntity> bodies;
+  private final Consumer<GameEntity> updateBroadphase = this::updateBroadphase;
+  private final PairCache<GameEntity> pairs = new PairCache<>();
+  private final Broadphase.PairVisitor<GameEntity> addPair = this::addPair;
+  private final Islands islands = new Islands();
+  private final List<GameEntity> continuous = new ArrayList<>();
+  private final Broadphase.Visitor<GameEntity> sweepHit = this::sweepHit;
+  private GameEntity sweeping;
+  private float sweepDx;
+  private float sweepDy;
+  private float sweepToi;
+  private final Consumer<GameEntity> updateComponents = this::updateComponents;
+  private final Consumer<GameEntity> updateLogic = this::updateLogic;
+  private final ForkJoinPool pool = ForkJoinPool.commonPool();
+  private double stepDt;
+  private double accumulatedTime = 0.0;
 
   public PhysicsSystem(GameContext gameContext) {
     super(gameContext);
-    this.solver = new Solver();
+    this.solver = new Solver(Constants.SOLVER_ITERATIONS, pool);
+    this.bodies = gameContext.query(PhysicsComponent.class);
   }
 
   /**
@@ -49,48 +90,232 @@ public class PhysicsSystem extends System {
     }
   }
 
+  /**
+   * Accumulate dt and perform physics updates for each fixed time step.
+   *
+   * @param dt the delta time between updates
+   */
   @Override
   public void update(double dt) {
-    buildQuadTree();
-    List<GameEntity> entityList = gameContext.getEntitiesWithComponent(PhysicsComponent.class);
-    for (GameEntity e : entityList) {
-     for (QuadTree<GameEntity>.Node j : collisionQuadtree.find(e.getCollisionComponent().getShape().getBounds())) {
-        if (e.getEntityId() != j.getValue().getEntityId()) {
-          Collision c = GJKDetector2D.checkCollision(e, j.getValue());
-          if (c.isColliding()) {
-            e.getCollisionComponent().onCollision(e, j.getValue());
-            solver.addCollision(c);
-          }
-        }
-      }
+    accumulatedTime += dt;
+    while (accumulatedTime >= FIXED_TIME_STEP) {
+      step(FIXED_TIME_STEP);
+      accumulatedTime = 0;
     }
+  }
+
+  private void step(double dt) {
+    continuous.clear();
+    bodies.forEach(updateBroadphase);
+    pairs.clear();
+    broadphase.queryPairs(addPair);
+    for (int i = 0; i < pairs.size(); i++) {
+      collide(pairs.getFirst(i), pairs.getSecond(i));
+    }
+    BodyStore store = gameContext.getBodyStore();
+    buildIslands(store);
     solver.solve();
-    for (GameEntity e1 : entityList) {
-      e1.update(dt);
-    }
-    if (Constants.DEBUG) {
-      WindowSize ws = GameWindow.getWindowSize();
-      collisionQuadtree.render(256, 256, gameContext);
-    }
-  }
-
-  private void buildQuadTree() {
-    WindowSize ws = GameWindow.getWindowSize();
-    collisionQuadtree = new QuadTree<>(ws.getWidth(), ws.getHeight());
-    Set<GameEntity> entitySet = gameContext.getEntityStream().collect(Collectors.toSet());
-      for (GameEntity e : entitySet) {
-          if (e.getTransformComponent() != null) {
-              collisionQuadtree.insert(
-                      e.getTransformComponent().getPosition().x,
-                      e.getTransformComponent().getPosition().y,
-                      e);
-          }
+    // Integration is split into chunks across the pool, every body and
+    // entity is only touched by its own chunk so the result is the same
+    // for any number of threads. Entity logic runs on this thread
+    // afterwards so spawns are recorded in a deterministic order.
+    store.integrate((float) dt, pool, CHUNK_SIZE);
+    for (int i = 0; i < continuous.size(); i++) {
+      sweep(continuous.get(i));
+    }
+    islands.sleep(store, Constants.SLEEP_STEPS);
+    stepDt = dt;
+    bodies.parallelForEach(pool, CHUNK_SIZE, updateComponents);
+    bodies.forEach(updateLogic);
+  }
+
+  /**
+   * Draw the collision quadtree, must be called on the render thread.
+   */
+  public void renderDebug() {
+    if (Constants.DEBUG && broadphase != null) {
+      broadphase.render(gameContext);
+    }
+  }
+
+  @Override
+  public Set<Class<? extends Component>> reads() {
+    return READS;
+  }
+
+  @Override
+  public Set<Class<? extends Component>> writes() {
+    return WRITES;
+  }
+
+
+  /**
+   * Add e to the broadphase the first time it is seen, afterwards only
+   * update its box, the broadphase moves it when it leaves its cell. A
+   * sleeping body has not moved so it is left alone.
+   */
+  private void updateBroadphase(GameEntity e) {
+    CollisionComponent cc = e.getCollisionComponent();
+    if (cc == null) {
+      return;
+    }
+    if (cc.getProxy() != Broadphase.NULL_PROXY && e.getTransformComponent().getBody().isAsleep()) {
+      return;
+    }
+    cc.updateTransform();
+    if (cc.isContinuous()) {
+      continuous.add(e);
+    }
+    if (cc.getProxy() == Broadphase.NULL_PROXY) {
+      cc.setProxy(broadphase.add(e, cc.getMinX(), cc.getMinY(), cc.getMaxX(), cc.getMaxY()));
+    } else {
+      broadphase.move(cc.getProxy(), cc.getMinX(), cc.getMinY(), cc.getMaxX(), cc.getMaxY());
+    }
+  }
+
+  private void addPair(GameEntity a, GameEntity b) {
+    pairs.add(EntityIdPool.index(a.getEntityId()), a, EntityIdPool.index(b.getEntityId()), b);
+  }
+
+  /**
+   * Narrow phase for a pair from the pair cache, each pair is only checked
+   * once so both entities are told about the collision here. Pairs where
+   * neither body can move are skipped, a sleeping body touched by an awake
+   * one is woken.
+   */
+  private void collide(GameEntity e, GameEntity other) {
+    Body a = e.getTransformComponent().getBody();
+    Body b = other.getTransformComponent().getBody();
+    if ((a.isAsleep() || a.isFixed()) && (b.isAsleep() || b.isFixed())) {
+      return;
+    }
+    Collision c = GJKDetector2D.checkCollision(e, other);
+    if (c.isColliding()) {
+      a.wake();
+      b.wake();
+      e.getCollisionComponent().onCollision(e, other);
+      other.getCollisionComponent().onCollision(other, e);
+      solver.addCollision(c);
+    }
+  }
+
+  /**
+   * Continuous collision for e, which the integration has just moved from
+   * where its collision transform was taken at the start of the step. The
+   * shape is swept against everything in the box covering its motion, with
+   * the other shapes held where they were at the start of the step, and e
+   * is pulled back to the first time of impact. It is left just touching,
+   * so the narrowphase finds the contact and the solver resolves it in the
+   * next step. Only the translation is swept, the rotation is held.
+   */
+  private void sweep(GameEntity e) {
+    CollisionComponent cc = e.getCollisionComponent();
+    Transform start = cc.getTransform();
+    Body body = e.getTransformComponent().getBody();
+    float dx = body.getX() - start.getX();
+    float dy = body.getY() - start.getY();
+    // Moving less than half its own size the shape overlaps anything it
+    // passes at the start or the end of the step, the discrete test will do.
+    float half = Math.min(cc.getMaxX() - cc.getMinX(), cc.getMaxY() - cc.getMinY()) / 2f;
+    if (dx * dx + dy * dy <= half * half) {
+      return;
+    }
+    sweeping = e;
+    sweepDx = dx;
+    sweepDy = dy;
+    sweepToi = 1f;
+    broadphase.query(
+        Math.min(cc.getMinX(), cc.getMinX() + dx), Math.min(cc.getMinY(), cc.getMinY() + dy),
+        Math.max(cc.getMaxX(), cc.getMaxX() + dx), Math.max(cc.getMaxY(), cc.getMaxY() + dy),
+        sweepHit);
+    sweeping = null;
+    if (sweepToi < 1f) {
+      body.setPosition(start.getX() + dx * sweepToi, start.getY() + dy * sweepToi);
+    }
+  }
+
+  private void sweepHit(int proxy, GameEntity other) {
+    if (other == sweeping) {
+      return;
+    }
+    CollisionComponent cc = sweeping.getCollisionComponent();
+    CollisionComponent oc = other.getCollisionComponent();
+    float t = GJKDetector2D.timeOfImpact(cc.getShape(), cc.getTransform(), sweepDx, sweepDy,
+        oc.getShape(), oc.getTransform());
+    // Shapes already overlapping at the start are left to the narrowphase.
+    if (t > 0f && t < sweepToi) {
+      sweepToi = t;
+    }
+  }
+
+  /**
+   * Join the islands of the bodies of every pair about to be solved, the
+   * islands are used to put resting bodies to sleep after integration.
+   */
+  private void buildIslands(BodyStore store) {
+    islands.reset(store.size());
+    for (int i = 0; i < solver.getContactCount(); i++) {
+      Body a = solver.getBodyA(i);
+      Body b = solver.getBodyB(i);
+      if (!a.isFixed() && !b.isFixed()) {
+        islands.union(a.getIndex(), b.getIndex());
       }
+    }
   }
 
+  private static Body bodyOf(GameEntity e) {
+    return e.getTransformComponent().getBody();
+  }
+
+  private void updateComponents(GameEntity e) {
+    e.updateComponents(stepDt);
+  }
+
+  private void updateLogic(GameEntity e) {
+    e.updateLogic(stepDt);
+  }
+
+  /**
+   * Create the broadphase named by {@link Constants#BROADPHASE}, region
+   * based broadphases cover the region currently in view, and set the
+   * speed below which bodies count as at rest.
+   */
   @Override
   public void initSystem() {
-    //Unused
+    broadphase = createBroadphase(Constants.BROADPHASE);
+    gameContext.getBodyStore().setSleepVelocity(Constants.SLEEP_VELOCITY);
+    LOGGER.debug("Using broadphase {}.", broadphase.getClass().getSimpleName());
+  }
+
+  private static Broadphase<GameEntity> createBroadphase(String name) {
+    return switch (name) {
+      case "quadtree" -> {
+        WindowSize ws = GameWindow.getWindowSize();
+        Vector3f pos = GameWindow.getCamera().getPosition();
+        yield new QuadTree<>(pos.x, pos.y, ws.getWidth(), ws.getHeight());
+      }
+      case "aabbtree" -> new AabbTree<>();
+      case "sap" -> new SweepAndPrune<>();
+      case "grid" -> new SpatialHashGrid<>(Constants.GRID_CELL_SIZE);
+      default -> throw new IllegalArgumentException("Unknown broadphase: " + name);
+    };
+  }
+
+  /**
+   * Remove an entity from the broadphase, called before it is destroyed.
+   * The bodies touching it are woken first, it may have been holding them
+   * up.
+   *
+   * @param e the entity being removed
+   */
+  public void removeEntity(GameEntity e) {
+    CollisionComponent cc = e.getCollisionComponent();
+    if (cc != null && cc.getProxy() != Broadphase.NULL_PROXY) {
+      Islands.wakeAround(broadphase, cc.getMinX(), cc.getMinY(), cc.getMaxX(), cc.getMaxY(),
+          WAKE_MARGIN, PhysicsSystem::bodyOf);
+      broadphase.remove(cc.getProxy());
+      cc.setProxy(Broadphase.NULL_PROXY);
+    }
   }
 
   @Override
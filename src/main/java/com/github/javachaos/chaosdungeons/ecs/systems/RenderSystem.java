@@ -1,11 +1,14 @@
 package com.github.javachaos.chaosdungeons.ecs.systems;
 
-import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.github.javachaos.chaosdungeons.constants.Constants;
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
 import com.github.javachaos.chaosdungeons.ecs.components.render.RenderComponent;
 import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
 import com.github.javachaos.chaosdungeons.ecs.entities.factory.impl.FireballEntityFactory;
@@ -19,6 +22,7 @@ import com.github.javachaos.chaosdungeons.ecs.entities.impl.RandomShapeEntity;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.SpawnerEntity;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.SquareEntity;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.TextEntity;
+import com.github.javachaos.chaosdungeons.ecs.storage.Query;
 
 /**
  * Rendering system class.
@@ -27,17 +31,37 @@ import com.github.javachaos.chaosdungeons.ecs.entities.impl.TextEntity;
 public class RenderSystem extends System {
 
   private static final Logger LOGGER = LogManager.getLogger(RenderSystem.class);
+  private static final Set<Class<? extends Component>> READS = Set.of(
+      RenderComponent.class, TransformComponent.class);
+
+  private final Query<GameEntity> renderables;
+  private final Consumer<GameEntity> render = this::render;
+  private double frameDt;
 
   public RenderSystem(GameContext gameContext) {
     super(gameContext);
+    this.renderables = gameContext.query(RenderComponent.class);
   }
 
   @Override
   public void update(double dt) { // update all entities with a render component.
-    List<GameEntity> entities = gameContext.getEntitiesWithComponent(RenderComponent.class);
-    for (GameEntity ge : entities) {
-      ge.render(dt);
-    }
+    frameDt = dt;
+    renderables.forEach(render);
+    gameContext.getPhysicsSystem().renderDebug();
+  }
+
+  @Override
+  public Set<Class<? extends Component>> reads() {
+    return READS;
+  }
+
+  @Override
+  public boolean isRenderThreadOnly() {
+    return true;
+  }
+
+  private void render(GameEntity ge) {
+    ge.render(frameDt);
   }
 
   @Override
@@ -1,5 +1,9 @@
 package com.github.javachaos.chaosdungeons.ecs.systems;
 
+import java.util.Collections;
+import java.util.Set;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
 import com.github.javachaos.chaosdungeons.ecs.entities.GameContext;
 
 /**
@@ -19,6 +23,46 @@ public abstract class System {
    */
   public abstract void update(double dt);
 
+  /**
+   * The component types this system reads during update, used by
+   * {@link SystemScheduler} to decide which systems may run concurrently.
+   *
+   * @return the component types read by this system
+   */
+  public Set<Class<? extends Component>> reads() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * The component types this system writes during update.
+   *
+   * @return the component types written by this system
+   */
+  public Set<Class<? extends Component>> writes() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * True if this system makes GL calls and so must be updated on the
+   * render thread.
+   *
+   * @return true if this system must run on the render thread
+   */
+  public boolean isRenderThreadOnly() {
+    return false;
+  }
+
+  /**
+   * True if update does nothing, {@link SystemScheduler} skips idle
+   * systems and runs a stage whose other systems are all idle on the
+   * calling thread instead of handing it to the pool.
+   *
+   * @return true if this system has no work to do in update
+   */
+  public boolean isIdle() {
+    return false;
+  }
+
   /**
    * Initialize this system.
    */
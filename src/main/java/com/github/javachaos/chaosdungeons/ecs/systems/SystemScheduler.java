@@ -0,0 +1,177 @@
+package com.github.javachaos.chaosdungeons.ecs.systems;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+
+/**
+ * Runs systems in stages. Systems are placed in the earliest stage after
+ * every previously added system they conflict with, two systems conflict
+ * when one writes a component type the other reads or writes. The systems
+ * of one stage run concurrently on a {@link ForkJoinPool}, except systems
+ * which must run on the render thread, those run on the calling thread.
+ * Idle systems are skipped, and a stage with a single busy system runs it
+ * on the calling thread.
+ */
+public class SystemScheduler {
+
+  private static final Logger LOGGER = LogManager.getLogger(SystemScheduler.class);
+
+  private final ForkJoinPool pool;
+  private final List<SystemTask> tasks = new ArrayList<>();
+  private final List<List<SystemTask>> stages = new ArrayList<>();
+
+  public SystemScheduler() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public SystemScheduler(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Add a system to this scheduler, systems added later run after the
+   * systems they conflict with.
+   *
+   * @param s the system to add
+   */
+  public void add(System s) {
+    SystemTask task = new SystemTask(s);
+    int stage = 0;
+    for (SystemTask t : tasks) {
+      if (conflicts(t.system, s)) {
+        stage = Math.max(stage, t.stage + 1);
+      }
+    }
+    task.stage = stage;
+    while (stages.size() <= stage) {
+      stages.add(new ArrayList<>());
+    }
+    stages.get(stage).add(task);
+    tasks.add(task);
+    LOGGER.debug("Scheduled {} in stage {}.", s.getClass().getSimpleName(), stage);
+  }
+
+  /**
+   * Update every system once, stage by stage.
+   *
+   * @param dt the delta time between updates
+   */
+  public void update(double dt) {
+    for (int i = 0; i < stages.size(); i++) {
+      runStage(stages.get(i), dt);
+    }
+  }
+
+  public int getStageCount() {
+    return stages.size();
+  }
+
+  /**
+   * Get the stage a system runs in.
+   *
+   * @param s the system
+   * @return the stage index or -1 if s is not scheduled
+   */
+  public int getStage(System s) {
+    for (SystemTask t : tasks) {
+      if (t.system == s) {
+        return t.stage;
+      }
+    }
+    return -1;
+  }
+
+  private void runStage(List<SystemTask> stage, double dt) {
+    SystemTask only = null;
+    int busy = 0;
+    for (int i = 0; i < stage.size(); i++) {
+      SystemTask t = stage.get(i);
+      if (!t.system.isIdle()) {
+        only = t;
+        busy++;
+      }
+    }
+    if (busy <= 1) {
+      // Nothing to run alongside, stay on the calling thread.
+      if (only != null) {
+        only.system.update(dt);
+      }
+      return;
+    }
+    for (int i = 0; i < stage.size(); i++) {
+      SystemTask t = stage.get(i);
+      if (runsOnPool(t)) {
+        t.dt = dt;
+        t.reinitialize();
+        pool.execute(t);
+      }
+    }
+    for (int i = 0; i < stage.size(); i++) {
+      SystemTask t = stage.get(i);
+      if (t.system.isRenderThreadOnly() && !t.system.isIdle()) {
+        t.system.update(dt);
+      }
+    }
+    for (int i = 0; i < stage.size(); i++) {
+      SystemTask t = stage.get(i);
+      if (runsOnPool(t)) {
+        t.join();
+      }
+    }
+  }
+
+  private static boolean runsOnPool(SystemTask t) {
+    return !t.system.isRenderThreadOnly() && !t.system.isIdle();
+  }
+
+  /**
+   * True if the two systems may not run at the same time.
+   *
+   * @param a the first system
+   * @param b the second system
+   * @return true if a and b conflict
+   */
+  static boolean conflicts(System a, System b) {
+    return overlaps(a.writes(), b.writes())
+        || overlaps(a.writes(), b.reads())
+        || overlaps(a.reads(), b.writes());
+  }
+
+  private static boolean overlaps(Set<Class<? extends Component>> a,
+                                  Set<Class<? extends Component>> b) {
+    for (Class<? extends Component> x : a) {
+      for (Class<? extends Component> y : b) {
+        if (x.isAssignableFrom(y) || y.isAssignableFrom(x)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reusable fork join task for one system.
+   */
+  private static final class SystemTask extends RecursiveAction {
+    private final transient System system;
+    private int stage;
+    private double dt;
+
+    SystemTask(System system) {
+      this.system = system;
+    }
+
+    @Override
+    protected void compute() {
+      system.update(dt);
+    }
+  }
+}
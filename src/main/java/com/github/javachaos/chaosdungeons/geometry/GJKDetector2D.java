@@ -2,188 +2,583 @@ package com.github.javachaos.chaosdungeons.geometry;
 
 import com.github.javachaos.chaosdungeons.collision.Collision;
 import com.github.javachaos.chaosdungeons.collision.Polygon;
+import com.github.javachaos.chaosdungeons.collision.Transform;
 import com.github.javachaos.chaosdungeons.ecs.components.CollisionComponent;
 import com.github.javachaos.chaosdungeons.ecs.entities.impl.GameEntity;
 import com.github.javachaos.chaosdungeons.utils.Pair;
 
 import org.joml.Vector2f;
-import org.joml.Vector3f;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * GJK intersection test with EPA for the penetration normal and depth.
+ * All the vector math is done on scalars in a per thread scratch buffer,
+ * with the EPA polytope in fixed size arrays, so a test allocates nothing
+ * but the Collision it reports. Every miss returns the shared
+ * {@link #NO_COLLISION} result. Shapes stay in local space, each support
+ * query rotates the direction into the shape and places only the chosen
+ * vertex in the world. A hit carries a manifold of up to two contact points,
+ * found by clipping the incident edge against the reference edge, each
+ * with a feature id which persists while the shapes keep touching the same
+ * way.
+ */
 public class GJKDetector2D {
 
     private static final float ERROR = 0.0001f;
+    private static final int MAX_ITERATIONS = 64;
+    private static final int MAX_POLYTOPE = 64;
+    private static final int MAX_SAMPLES = 64;
+    private static final int BISECTIONS = 12;
+    // A new reference edge must be this much flatter to take over, so the
+    // choice does not flip between steps when two edges are parallel.
+    private static final float REFERENCE_TOLERANCE = 0.01f;
+    private static final int MAX_POINTS = 2;
 
-    private record EdgeInfo(float dist, int index, Vector2f a, Vector2f b, Vector2f normal) {}
-    private record Simplex(Vector2f a, Vector2f b, Vector2f c) {}
+    /**
+     * Returned by {@link #timeOfImpact} when the shapes do not meet.
+     */
+    public static final float NO_IMPACT = -1f;
+
+    /**
+     * The result of every test which finds no collision, shared and must
+     * not be modified.
+     */
+    public static final Collision NO_COLLISION = new Collision(null, new Vector2f(), 0, false, false);
+
+    private static final Transform IDENTITY = new Transform();
+
+    /**
+     * Scratch state for one thread, the simplex, the EPA polytope and the
+     * last support point and result.
+     */
+    private static final class Scratch {
+        Transform t1;
+        Transform t2;
+        final Transform swept = new Transform();
+        final float[] px = new float[MAX_POLYTOPE];
+        final float[] py = new float[MAX_POLYTOPE];
+        float ax;
+        float ay;
+        float bx;
+        float by;
+        float cx;
+        float cy;
+        float sx;
+        float sy;
+        float tx;
+        float ty;
+        float nx;
+        float ny;
+        float depth;
+        int edgeEnd;
+        float slope;
+        final float[] mx = new float[MAX_POINTS];
+        final float[] my = new float[MAX_POINTS];
+        final float[] md = new float[MAX_POINTS];
+        final int[] mid = new int[MAX_POINTS];
+        int points;
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private GJKDetector2D() {
+        //Unused
+    }
 
     /**
      * Check for a collision between the two GameEntities a and b.
      *
      * @param a first game entity
      * @param b second game entity
-     * @return a Collision object
+     * @return a Collision object, {@link #NO_COLLISION} for a miss
      */
     public static Collision checkCollision(GameEntity a, GameEntity b) {
-        Collision.Builder builder = new Collision.Builder().setColliders(new Pair<>(a, b));
         if (!a.isDynamic() && !b.isDynamic()) {
-            return builder.setIsColliding(false).build();
+            return NO_COLLISION;
         }
         if (!a.hasComponent(CollisionComponent.class) || !b.hasComponent(CollisionComponent.class)) {
-            return builder.setIsColliding(false).build();
-        }
-        Polygon av = a.getCollisionComponent().getShape();
-        Polygon bv = b.getCollisionComponent().getShape();
-        Simplex simp = gjk(av, bv);
-        if (simp != null) {
-            EdgeInfo ei = epa(av, bv, simp);
-            assert ei != null;
-            return builder.setIncomplete(false)
-                    .setIsColliding(true)
-                    .setCollisionNormal(ei.normal())
-                    .setPenetrationDepth(ei.dist())
-                    .build();
-        } else {
-            return builder.setIsColliding(false).build();
+            return NO_COLLISION;
         }
+        CollisionComponent ca = a.getCollisionComponent();
+        CollisionComponent cb = b.getCollisionComponent();
+        Scratch s = SCRATCH.get();
+        s.t1 = ca.getTransform();
+        s.t2 = cb.getTransform();
+        if (!intersect(ca.getShape(), cb.getShape(), s)) {
+            return NO_COLLISION;
+        }
+        return hit(new Pair<>(a, b), s);
     }
 
     /**
-     * Check for a collision between the two GameEntities a and b.
+     * Check for a collision between the two polygons a and b, both taken
+     * to be in world space.
      *
-     * @param a first game entity
-     * @param b second game entity
-     * @return a Collision object
+     * @param a first polygon
+     * @param b second polygon
+     * @return a Collision object, {@link #NO_COLLISION} for a miss
      */
     public static Collision checkCollision(Polygon a, Polygon b) {
-        Collision.Builder builder = new Collision.Builder();
-        Simplex simp = gjk(a, b);
-        if (simp != null) {
-            EdgeInfo ei = epa(a, b, simp);
-            if (ei == null) {
-                return builder.setIncomplete(false)
-                        .setIsColliding(false)
-                        .build();
-            } else {
-                return builder.setIncomplete(false)
-                        .setIsColliding(true)
-                        .setCollisionNormal(ei.normal())
-                        .setPenetrationDepth(ei.dist())
-                        .build();
+        return checkCollision(a, IDENTITY, b, IDENTITY);
+    }
+
+    /**
+     * Check for a collision between the local space polygons a and b placed
+     * in the world by ta and tb.
+     *
+     * @param a first polygon
+     * @param ta the world transform of a
+     * @param b second polygon
+     * @param tb the world transform of b
+     * @return a Collision object, {@link #NO_COLLISION} for a miss
+     */
+    public static Collision checkCollision(Polygon a, Transform ta, Polygon b, Transform tb) {
+        Scratch s = SCRATCH.get();
+        s.t1 = ta;
+        s.t2 = tb;
+        if (!intersect(a, b, s)) {
+            return NO_COLLISION;
+        }
+        return hit(null, s);
+    }
+
+    /**
+     * Find the first time at which the local space polygon a, placed by ta
+     * and moved by (dx, dy) over the step, touches b which stays where tb
+     * puts it. The boxes of the shapes give the span of the step in which
+     * they can meet, GJK is run at samples no further apart than half the
+     * size of a, so it cannot step over b, and the first overlap is then
+     * refined by bisection.
+     *
+     * @param a the moving polygon
+     * @param ta the world transform of a at the start of the step
+     * @param dx the motion of a in x over the step
+     * @param dy the motion of a in y over the step
+     * @param b the other polygon
+     * @param tb the world transform of b
+     * @return the fraction of the step in [0, 1] at which the shapes first
+     *     overlap, just past the contact, or {@link #NO_IMPACT}
+     */
+    public static float timeOfImpact(Polygon a, Transform ta, float dx, float dy,
+                                     Polygon b, Transform tb) {
+        if (a.getVertexCount() == 0 || b.getVertexCount() == 0) {
+            return NO_IMPACT;
+        }
+        float ahx = (a.getMaxX() - a.getMinX()) / 2f;
+        float ahy = (a.getMaxY() - a.getMinY()) / 2f;
+        float bhx = (b.getMaxX() - b.getMinX()) / 2f;
+        float bhy = (b.getMaxY() - b.getMinY()) / 2f;
+        float acx = (a.getMinX() + a.getMaxX()) / 2f;
+        float acy = (a.getMinY() + a.getMaxY()) / 2f;
+        float bcx = (b.getMinX() + b.getMaxX()) / 2f;
+        float bcy = (b.getMinY() + b.getMaxY()) / 2f;
+        float aex = ta.extentX(ahx, ahy);
+        float aey = ta.extentY(ahx, ahy);
+        // The box of a meets the box of b while the offset between their
+        // centers is within the sum of their extents on both axes.
+        float rx = tb.applyX(bcx, bcy) - ta.applyX(acx, acy);
+        float ry = tb.applyY(bcx, bcy) - ta.applyY(acx, acy);
+        float ex = aex + tb.extentX(bhx, bhy);
+        float ey = aey + tb.extentY(bhx, bhy);
+        float enter = 0f;
+        float exit = 1f;
+        if (dx == 0) {
+            if (Math.abs(rx) > ex) {
+                return NO_IMPACT;
+            }
+        } else {
+            float t0 = (rx - ex) / dx;
+            float t1 = (rx + ex) / dx;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        }
+        if (dy == 0) {
+            if (Math.abs(ry) > ey) {
+                return NO_IMPACT;
             }
         } else {
-            return builder.setIsColliding(false).build();
+            float t0 = (ry - ey) / dy;
+            float t1 = (ry + ey) / dy;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        }
+        if (enter > exit) {
+            return NO_IMPACT;
+        }
+        Scratch s = SCRATCH.get();
+        float span = (exit - enter) * (float) Math.sqrt(dx * dx + dy * dy);
+        float spacing = Math.max(Math.min(aex, aey), ERROR);
+        int n = (int) Math.min(MAX_SAMPLES, Math.ceil(span / spacing));
+        float lo = enter;
+        for (int i = 0; i <= n; i++) {
+            float t = n == 0 ? enter : enter + (exit - enter) * i / n;
+            if (overlapsAt(a, ta, dx, dy, b, tb, t, s)) {
+                if (i == 0) {
+                    return t;
+                }
+                float hi = t;
+                for (int j = 0; j < BISECTIONS; j++) {
+                    float mid = (lo + hi) / 2f;
+                    if (overlapsAt(a, ta, dx, dy, b, tb, mid, s)) {
+                        hi = mid;
+                    } else {
+                        lo = mid;
+                    }
+                }
+                return hi;
+            }
+            lo = t;
         }
+        return NO_IMPACT;
     }
 
-    private static Simplex gjk(Polygon v1, Polygon v2) {
-        Vector2f p1 = v1.getCenter();
-        Vector2f p2 = v2.getCenter();
-        Vector2f dir = p1.sub(p2);
-        Vector2f a = support2(
-                v1,
-                v2,
-                dir);
+    private static boolean overlapsAt(Polygon a, Transform ta, float dx, float dy,
+                                      Polygon b, Transform tb, float t, Scratch s) {
+        s.swept.set(ta, dx * t, dy * t);
+        s.t1 = s.swept;
+        s.t2 = tb;
+        return gjk(a, b, s);
+    }
 
-        Vector2f v = new Vector2f(-a.x, -a.y);
-        Vector2f b = support2(v1, v2, v);
-        if (b.dot(v) <= 0) {
-            return null;
+    private static boolean intersect(Polygon v1, Polygon v2, Scratch s) {
+        if (v1.getVertexCount() == 0 || v2.getVertexCount() == 0 || !gjk(v1, v2, s)) {
+            return false;
         }
+        epa(v1, v2, s);
+        manifold(v1, v2, s);
+        return true;
+    }
 
-        Vector2f ab = new Vector2f(b).sub(a);
-        v = vectorTripleProduct(ab, v, ab);
-        for (;;) {
-            Vector2f c = support2(v1, v2, v);
-            float d = new Vector2f(c).dot(v);
-            if (d <= 0) {
-                return null;
-            }
-            Vector2f c0 = new Vector2f(-c.x, -c.y);
-            Vector2f cb = new Vector2f(b).sub(c);
-            Vector2f ca = new Vector2f(a).sub(c);
-
-            Vector2f cbOrth = vectorTripleProduct(ca, cb, cb);
-            Vector2f caOrth = vectorTripleProduct(cb, ca, ca);
-            if (new Vector2f(caOrth).dot(c0) > 0) {
-                b = c;
-                v = caOrth;
-            } else if (new Vector2f(cbOrth).dot(c0) > 0) {
-                a = c;
-                v = cbOrth;
-            } else {
-                return new Simplex(a, b, c);
+    private static Collision hit(Pair<GameEntity, GameEntity> colliders, Scratch s) {
+        List<Vector2f> points = new ArrayList<>(s.points);
+        int[] ids = new int[s.points];
+        float[] depths = new float[s.points];
+        for (int i = 0; i < s.points; i++) {
+            points.add(new Vector2f(s.mx[i], s.my[i]));
+            ids[i] = s.mid[i];
+            depths[i] = s.md[i];
+        }
+        Collision c = new Collision(colliders, new Vector2f(s.nx, s.ny), s.depth, points, true, false);
+        c.setContactIds(ids);
+        c.setContactDepths(depths);
+        return c;
+    }
+
+    /**
+     * Find the contact points of the collision whose normal, pointing from
+     * v1 to v2, is in the scratch. Of the two edges most perpendicular to
+     * the normal the flatter is the reference edge, the other edge is
+     * clipped to the sides of the reference edge and the points behind the
+     * reference edge are kept, with their depth. The ids pack the vertex
+     * indices of both edges and of the incident vertex or side plane which
+     * made each point, so they persist while the local shapes do.
+     */
+    private static void manifold(Polygon v1, Polygon v2, Scratch s) {
+        int a1 = bestEdge(v1, s.t1, s.nx, s.ny, s);
+        int a2 = s.edgeEnd;
+        float slopeA = s.slope;
+        int b1 = bestEdge(v2, s.t2, -s.nx, -s.ny, s);
+        int b2 = s.edgeEnd;
+        boolean flip = s.slope < slopeA - REFERENCE_TOLERANCE;
+        Polygon ref = flip ? v2 : v1;
+        Polygon inc = flip ? v1 : v2;
+        Transform tr = flip ? s.t2 : s.t1;
+        Transform ti = flip ? s.t1 : s.t2;
+        int r1 = flip ? b1 : a1;
+        int r2 = flip ? b2 : a2;
+        int i1 = flip ? a1 : b1;
+        int i2 = flip ? a2 : b2;
+        // The normal pointing out of the reference polygon.
+        float rnx = flip ? -s.nx : s.nx;
+        float rny = flip ? -s.ny : s.ny;
+        if (r2 < 0 || i2 < 0) {
+            // A polygon of one point, the deepest point is the only contact.
+            single(inc, ti, i1, s);
+            return;
+        }
+        float r1x = tr.applyX(ref.getX(r1), ref.getY(r1));
+        float r1y = tr.applyY(ref.getX(r1), ref.getY(r1));
+        float r2x = tr.applyX(ref.getX(r2), ref.getY(r2));
+        float r2y = tr.applyY(ref.getX(r2), ref.getY(r2));
+        float ex = r2x - r1x;
+        float ey = r2y - r1y;
+        float len = (float) Math.sqrt(ex * ex + ey * ey);
+        ex /= len;
+        ey /= len;
+        int base = (flip ? 1 : 0) | (Math.min(r1, r2) & 0xFF) << 1 | (Math.max(r1, r2) & 0xFF) << 9;
+        s.mx[0] = ti.applyX(inc.getX(i1), inc.getY(i1));
+        s.my[0] = ti.applyY(inc.getX(i1), inc.getY(i1));
+        s.mid[0] = base | (i1 & 0xFF) << 17;
+        s.mx[1] = ti.applyX(inc.getX(i2), inc.getY(i2));
+        s.my[1] = ti.applyY(inc.getX(i2), inc.getY(i2));
+        s.mid[1] = base | (i2 & 0xFF) << 17;
+        s.points = 2;
+        clip(ex, ey, ex * r1x + ey * r1y, 1, s);
+        clip(-ex, -ey, -(ex * r2x + ey * r2y), 2, s);
+        // The face normal of the reference edge, facing out of it.
+        float fx = ey;
+        float fy = -ex;
+        if (fx * rnx + fy * rny < 0) {
+            fx = -fx;
+            fy = -fy;
+        }
+        float face = fx * r1x + fy * r1y;
+        int n = 0;
+        for (int i = 0; i < s.points; i++) {
+            float d = face - (fx * s.mx[i] + fy * s.my[i]);
+            if (d >= 0) {
+                s.mx[n] = s.mx[i];
+                s.my[n] = s.my[i];
+                s.md[n] = d;
+                s.mid[n] = s.mid[i];
+                n++;
             }
         }
+        s.points = n;
+        if (n == 0) {
+            single(inc, ti, i1, s);
+        }
     }
 
-    private static EdgeInfo epa(Polygon a, Polygon b, Simplex s) {
-        List<Vector2f> polytope = new ArrayList<>(3);
-        polytope.add(s.a());
-        polytope.add(s.b());
-        polytope.add(s.c());
-        for (;;) {
-            EdgeInfo e = closestEdge(polytope);
-            if (e == null) {
-                return null;
+    /**
+     * A manifold of the one incident vertex i at the depth found by EPA.
+     */
+    private static void single(Polygon inc, Transform ti, int i, Scratch s) {
+        s.mx[0] = ti.applyX(inc.getX(i), inc.getY(i));
+        s.my[0] = ti.applyY(inc.getX(i), inc.getY(i));
+        s.md[0] = s.depth;
+        s.mid[0] = (i & 0xFF) << 17;
+        s.points = 1;
+    }
+
+    /**
+     * Keep the part of the segment between the manifold points on the side
+     * of the line where (nx, ny) . p >= offset, a point cut off is replaced
+     * by the crossing, whose id names the side plane instead of the vertex.
+     */
+    private static void clip(float nx, float ny, float offset, int side, Scratch s) {
+        float d0 = nx * s.mx[0] + ny * s.my[0] - offset;
+        float d1 = nx * s.mx[1] + ny * s.my[1] - offset;
+        if (d0 >= 0 && d1 >= 0) {
+            return;
+        }
+        if (d0 < 0 && d1 < 0) {
+            // The whole incident edge is beside the reference edge, keep
+            // its points and let the depth test decide.
+            return;
+        }
+        float t = d0 / (d0 - d1);
+        float x = s.mx[0] + (s.mx[1] - s.mx[0]) * t;
+        float y = s.my[0] + (s.my[1] - s.my[0]) * t;
+        int out = d0 < 0 ? 0 : 1;
+        s.mx[out] = x;
+        s.my[out] = y;
+        s.mid[out] = s.mid[out] & ~(0xFF << 17) | 1 << (24 + side);
+    }
+
+    /**
+     * Find the edge of poly most perpendicular to the world direction
+     * (dx, dy). The edge starts at the support vertex, which is returned,
+     * and ends at the vertex which makes the flattest edge with it, left in
+     * edgeEnd of the scratch with the slope of the edge against the
+     * direction. Vertices need not be in hull order, the flattest edge from
+     * the support vertex of a convex polygon is always one of its edges.
+     */
+    private static int bestEdge(Polygon poly, Transform t, float dx, float dy, Scratch s) {
+        float lx = t.inverseRotateX(dx, dy);
+        float ly = t.inverseRotateY(dx, dy);
+        int i = poly.support(lx, ly);
+        float xi = poly.getX(i);
+        float yi = poly.getY(i);
+        int best = -1;
+        float bestSlope = Float.POSITIVE_INFINITY;
+        for (int j = 0; j < poly.getVertexCount(); j++) {
+            float ex = xi - poly.getX(j);
+            float ey = yi - poly.getY(j);
+            float len = (float) Math.sqrt(ex * ex + ey * ey);
+            if (j == i || len < ERROR) {
+                continue;
             }
-            Vector2f r = support2(a, b, e.normal());
-            if (Math.abs(e.normal().dot(r) - e.dist()) < ERROR) {
-                return e;
+            float slope = (ex * lx + ey * ly) / len;
+            if (slope < bestSlope) {
+                bestSlope = slope;
+                best = j;
             }
-            polytope.add(e.index() + 1, r);
         }
+        s.edgeEnd = best;
+        s.slope = bestSlope;
+        return i;
     }
 
-    private static long support(Polygon pts, Vector2f v) {
-        long index = 0;
-        float maxDot = v.dot(pts.getPoint(0));
-        for (long i = 1; i < pts.getSize(); i++) {
-            float dot = v.dot(pts.getPoint(i));
-            if (dot > maxDot) {
-                maxDot = dot;
-                index = i;
+    /**
+     * Find a triangle of the Minkowski difference v1 - v2 holding the
+     * origin, left in a, b and c of the scratch.
+     *
+     * @return true if the polygons intersect
+     */
+    private static boolean gjk(Polygon v1, Polygon v2, Scratch s) {
+        float dx = s.t1.applyX(v1.getX(0), v1.getY(0)) - s.t2.applyX(v2.getX(0), v2.getY(0));
+        float dy = s.t1.applyY(v1.getX(0), v1.getY(0)) - s.t2.applyY(v2.getX(0), v2.getY(0));
+        if (dx == 0 && dy == 0) {
+            dx = 1;
+        }
+        support(v1, v2, dx, dy, s);
+        s.ax = s.sx;
+        s.ay = s.sy;
+        dx = -s.ax;
+        dy = -s.ay;
+        if (dx == 0 && dy == 0) {
+            // The origin is a vertex of the difference, the shapes touch.
+            return false;
+        }
+        support(v1, v2, dx, dy, s);
+        if (s.sx * dx + s.sy * dy <= 0) {
+            return false;
+        }
+        s.bx = s.sx;
+        s.by = s.sy;
+        // Towards the origin, perpendicular to ab.
+        float abx = s.bx - s.ax;
+        float aby = s.by - s.ay;
+        tripleProduct(abx, aby, dx, dy, abx, aby, s);
+        dx = s.tx;
+        dy = s.ty;
+        if (dx == 0 && dy == 0) {
+            // The origin lies on ab, either side will do.
+            dx = -aby;
+            dy = abx;
+        }
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            support(v1, v2, dx, dy, s);
+            if (s.sx * dx + s.sy * dy <= 0) {
+                return false;
+            }
+            s.cx = s.sx;
+            s.cy = s.sy;
+            float cbx = s.bx - s.cx;
+            float cby = s.by - s.cy;
+            float cax = s.ax - s.cx;
+            float cay = s.ay - s.cy;
+            tripleProduct(cbx, cby, cax, cay, cax, cay, s);
+            float caOrthX = s.tx;
+            float caOrthY = s.ty;
+            tripleProduct(cax, cay, cbx, cby, cbx, cby, s);
+            float cbOrthX = s.tx;
+            float cbOrthY = s.ty;
+            if (-(caOrthX * s.cx + caOrthY * s.cy) > 0) {
+                s.bx = s.cx;
+                s.by = s.cy;
+                dx = caOrthX;
+                dy = caOrthY;
+            } else if (-(cbOrthX * s.cx + cbOrthY * s.cy) > 0) {
+                s.ax = s.cx;
+                s.ay = s.cy;
+                dx = cbOrthX;
+                dy = cbOrthY;
+            } else {
+                return true;
             }
         }
-        return index;
+        return false;
     }
 
-    private static Vector2f support2(Polygon pts1, Polygon pts2, Vector2f v) {
-        Polygon.Point v1 = pts1.getPoint(support(pts1, v));
-        Polygon.Point v2 = pts2.getPoint(support(pts2, new Vector2f(-v.x, -v.y)));
-        return v1.sub(v2);
+    /**
+     * Expand the GJK triangle towards the edge of the Minkowski difference
+     * closest to the origin, leaving its normal and distance in the scratch.
+     */
+    private static void epa(Polygon a, Polygon b, Scratch s) {
+        float[] px = s.px;
+        float[] py = s.py;
+        px[0] = s.ax;
+        py[0] = s.ay;
+        px[1] = s.bx;
+        py[1] = s.by;
+        px[2] = s.cx;
+        py[2] = s.cy;
+        int n = 3;
+        for (;;) {
+            int index = closestEdge(px, py, n, s);
+            support(a, b, s.nx, s.ny, s);
+            if (Math.abs(s.nx * s.sx + s.ny * s.sy - s.depth) < ERROR || n == MAX_POLYTOPE) {
+                return;
+            }
+            System.arraycopy(px, index + 1, px, index + 2, n - index - 1);
+            System.arraycopy(py, index + 1, py, index + 2, n - index - 1);
+            px[index + 1] = s.sx;
+            py[index + 1] = s.sy;
+            n++;
+        }
     }
 
-    private static EdgeInfo closestEdge(List<Vector2f> polytopes) {
+    /**
+     * Find the edge of the polytope closest to the origin, its outward
+     * normal and distance are left in nx, ny and depth of the scratch.
+     *
+     * @return the index of the first point of the edge
+     */
+    private static int closestEdge(float[] px, float[] py, int n, Scratch s) {
         float dmin = Float.POSITIVE_INFINITY;
-        EdgeInfo closest = null;
-        int numPts = polytopes.size();
-
-        for (int i = 0; i < numPts; i++) {
-            Vector2f p = polytopes.get(i);
-            Vector2f q = polytopes.get((i + 1) % polytopes.size());
-            Vector2f e = q.sub(p);
-            Vector2f n = vectorTripleProduct(e, p, e).normalize();
-            float dist = n.dot(p);
+        int closest = 0;
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            float ex = px[j] - px[i];
+            float ey = py[j] - py[i];
+            tripleProduct(ex, ey, px[i], py[i], ex, ey, s);
+            float nx = s.tx;
+            float ny = s.ty;
+            float len = (float) Math.sqrt(nx * nx + ny * ny);
+            if (len < ERROR) {
+                // The origin lies on this edge.
+                nx = ey;
+                ny = -ex;
+                len = (float) Math.sqrt(nx * nx + ny * ny);
+                if (len < ERROR) {
+                    continue;
+                }
+            }
+            nx /= len;
+            ny /= len;
+            float dist = nx * px[i] + ny * py[i];
             if (dist < dmin) {
                 dmin = dist;
-                closest = new EdgeInfo(dist, i, p, q, n);
+                closest = i;
+                s.nx = nx;
+                s.ny = ny;
+                s.depth = dist;
             }
         }
-
         return closest;
     }
 
-    private static Vector2f vectorTripleProduct(final Vector2f a, final Vector2f b, final Vector2f c) {
-        Vector3f a3 = new Vector3f(a, 0f);
-        Vector3f b3 = new Vector3f(b, 0f);
-        Vector3f c3 = new Vector3f(c, 0f);
-        Vector3f lhs = new Vector3f(b3).mul(a3.dot(c3));
-        Vector3f rhs = new Vector3f(c3).mul(a3.dot(b3));
-        Vector3f res = lhs.sub(rhs);
-        return new Vector2f(res.x, res.y);
+    /**
+     * The support point of pts1 - pts2 in the world direction (dx, dy), left
+     * in sx and sy of the scratch. The direction is rotated into the local
+     * space of each shape, so only the two chosen vertices are transformed.
+     */
+    private static void support(Polygon pts1, Polygon pts2, float dx, float dy, Scratch s) {
+        Transform t1 = s.t1;
+        Transform t2 = s.t2;
+        int i = pts1.support(t1.inverseRotateX(dx, dy), t1.inverseRotateY(dx, dy));
+        int j = pts2.support(-t2.inverseRotateX(dx, dy), -t2.inverseRotateY(dx, dy));
+        float x1 = pts1.getX(i);
+        float y1 = pts1.getY(i);
+        float x2 = pts2.getX(j);
+        float y2 = pts2.getY(j);
+        s.sx = t1.applyX(x1, y1) - t2.applyX(x2, y2);
+        s.sy = t1.applyY(x1, y1) - t2.applyY(x2, y2);
     }
 
+    /**
+     * The triple product (a x b) x c = b (a . c) - a (b . c) in the plane,
+     * left in tx and ty of the scratch.
+     */
+    private static void tripleProduct(float ax, float ay, float bx, float by, float cx, float cy,
+                                      Scratch s) {
+        float ac = ax * cx + ay * cy;
+        float bc = bx * cx + by * cy;
+        s.tx = bx * ac - ax * bc;
+        s.ty = by * ac - ay * bc;
+    }
 }
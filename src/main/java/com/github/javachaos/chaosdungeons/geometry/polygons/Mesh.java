@@ -1,5 +1,8 @@
 package com.github.javachaos.chaosdungeons.geometry.polygons;
 
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+
 /**
  * Simple mesh class.
  */
@@ -8,10 +11,26 @@ public class Mesh {
 
   private int vao;
   private int vertices;
+  private final int[] vbos;
+  private boolean deleted;
 
-  public Mesh(int vao, int vertex) {
+  public Mesh(int vao, int vertex, int... vbos) {
     this.vao = vao;
     this.vertices = vertex;
+    this.vbos = vbos;
+  }
+
+  /**
+   * Delete the vertex array and buffers of this mesh from the GPU.
+   */
+  public void delete() {
+    if (!deleted) {
+      GL30.glDeleteVertexArrays(vao);
+      for (int vbo : vbos) {
+        GL15.glDeleteBuffers(vbo);
+      }
+      deleted = true;
+    }
   }
 
   public int getVaoID() {
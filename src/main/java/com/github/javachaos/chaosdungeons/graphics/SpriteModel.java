@@ -10,6 +10,7 @@ import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
 import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
 import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15.glGenBuffers;
 import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
 import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
@@ -55,6 +56,9 @@ public class SpriteModel implements Model {
    */
   public SpriteModel(Texture texture, GameEntity ge) {
     this.texture = texture;
+    if (texture != null) {
+      texture.retain();
+    }
     this.drawCount = indices.length;
     this.ge = ge;
     init();
@@ -82,12 +86,18 @@ public class SpriteModel implements Model {
   }
 
   /**
-   * Delete the texture from the GPU.
+   * Delete the buffers of this model from the GPU and release the
+   * shared texture, which is deleted once no model uses it.
    */
   @Override
   public void delete() {
-    if (!deleted && texture != null) {
-      texture.delete();
+    if (!deleted) {
+      glDeleteBuffers(vertexId);
+      glDeleteBuffers(textureId);
+      glDeleteBuffers(indicesId);
+      if (texture != null) {
+        texture.release();
+      }
       deleted = true;
     }
   }
@@ -47,6 +47,7 @@ public class Texture {
   private final int height;
   private final int id;
   private boolean deleted;
+  private int references;
 
   /**
    * Create a new texture.
@@ -122,6 +123,27 @@ public class Texture {
     glBindTexture(GL_TEXTURE_2D, 0);
   }
 
+  /**
+   * Register a new user of this texture.
+   */
+  public void retain() {
+    references++;
+  }
+
+  /**
+   * Release a user of this texture, the texture is deleted once it
+   * has no users left.
+   */
+  public void release() {
+    if (--references <= 0) {
+      delete();
+    }
+  }
+
+  public boolean isDeleted() {
+    return deleted;
+  }
+
   /**
    * Delete this texture.
    */
@@ -0,0 +1,257 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class TestBroadphase {
+
+    private static final Logger LOGGER = LogManager.getLogger(TestBroadphase.class);
+    private static final int PROXIES = 500;
+
+    /**
+     * Add, move and remove random boxes and check every query against a
+     * brute force search.
+     */
+    private static void checkAgainstBruteForce(Broadphase<Integer> broadphase) {
+        Random random = new Random(42);
+        float[][] boxes = new float[PROXIES][];
+        int[] proxies = new int[PROXIES];
+        for (int i = 0; i < PROXIES; i++) {
+            boxes[i] = randomBox(random);
+            proxies[i] = broadphase.add(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+        for (int step = 0; step < 20; step++) {
+            for (int i = 0; i < PROXIES; i++) {
+                if (proxies[i] == Broadphase.NULL_PROXY) {
+                    continue;
+                }
+                if (random.nextInt(50) == 0) {
+                    broadphase.remove(proxies[i]);
+                    proxies[i] = Broadphase.NULL_PROXY;
+                } else if (random.nextInt(4) == 0) {
+                    float dx = random.nextFloat() * 20f - 10f;
+                    float dy = random.nextFloat() * 20f - 10f;
+                    float[] b = boxes[i];
+                    b[0] += dx;
+                    b[1] += dy;
+                    b[2] += dx;
+                    b[3] += dy;
+                    broadphase.move(proxies[i], b[0], b[1], b[2], b[3]);
+                }
+            }
+            for (int q = 0; q < 20; q++) {
+                float[] box = randomBox(random);
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < PROXIES; i++) {
+                    float[] b = boxes[i];
+                    if (proxies[i] != Broadphase.NULL_PROXY
+                            && b[0] <= box[2] && b[2] >= box[0] && b[1] <= box[3] && b[3] >= box[1]) {
+                        expected.add(i);
+                    }
+                }
+                Set<Integer> found = new HashSet<>();
+                broadphase.query(box[0], box[1], box[2], box[3], (proxy, value) -> {
+                    assertTrue(found.add(value), "Visited " + value + " twice.");
+                    assertEquals(proxies[value], proxy);
+                });
+                assertEquals(expected, found);
+            }
+            checkPairs(broadphase, boxes, proxies);
+        }
+        int alive = 0;
+        for (int p : proxies) {
+            alive += p == Broadphase.NULL_PROXY ? 0 : 1;
+        }
+        assertEquals(alive, broadphase.size());
+    }
+
+    /**
+     * Check that queryPairs visits every overlapping pair exactly once.
+     */
+    private static void checkPairs(Broadphase<Integer> broadphase, float[][] boxes, int[] proxies) {
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < PROXIES; i++) {
+            for (int j = i + 1; j < PROXIES; j++) {
+                float[] a = boxes[i];
+                float[] b = boxes[j];
+                if (proxies[i] != Broadphase.NULL_PROXY && proxies[j] != Broadphase.NULL_PROXY
+                        && a[0] <= b[2] && a[2] >= b[0] && a[1] <= b[3] && a[3] >= b[1]) {
+                    expected.add((long) i * PROXIES + j);
+                }
+            }
+        }
+        Set<Long> found = new HashSet<>();
+        broadphase.queryPairs((a, b) -> {
+            long key = (long) Math.min(a, b) * PROXIES + Math.max(a, b);
+            assertTrue(found.add(key), "Visited " + a + ", " + b + " twice.");
+        });
+        assertEquals(expected, found);
+    }
+
+    private static float[] randomBox(Random random) {
+        // Some boxes fall outside [0, 1000] to exercise out of bounds proxies.
+        float x = random.nextFloat() * 1100f - 50f;
+        float y = random.nextFloat() * 1100f - 50f;
+        float w = random.nextFloat() * 40f;
+        float h = random.nextFloat() * 40f;
+        return new float[] {x, y, x + w, y + h};
+    }
+
+    @Test
+    void testQuadTree() {
+        checkAgainstBruteForce(new QuadTree<>(0f, 0f, 1000f, 1000f));
+    }
+
+    @Test
+    void testQuadTreeMovesOnlyOnCellChange() {
+        QuadTree<Integer> tree = new QuadTree<>(0f, 0f, 1000f, 1000f);
+        for (int i = 0; i <= QuadTree.NODE_CAPACITY; i++) {
+            tree.add(i, 10f * i, 10f, 10f * i + 1f, 11f);
+        }
+        int p = tree.add(-1, 100f, 100f, 101f, 101f);
+        assertEquals(2, tree.getDepth(p));
+        assertFalse(tree.move(p, 110f, 110f, 111f, 111f));
+        assertTrue(tree.move(p, 900f, 900f, 901f, 901f));
+        // A small box straddling the center still fits the loose bounds of its child.
+        assertFalse(tree.move(p, 499f, 499f, 501f, 501f));
+        assertEquals(1, tree.getDepth(p));
+        // A box wider than every child's loose bounds stays in the root.
+        assertTrue(tree.move(p, -100f, -100f, 900f, 900f));
+        assertEquals(0, tree.getDepth(p));
+        assertFalse(tree.move(p, 2000f, 2000f, 2001f, 2001f));
+        assertEquals(0, tree.getDepth(p));
+        Set<Integer> found = new HashSet<>();
+        tree.query(1990f, 1990f, 2010f, 2010f, (proxy, value) -> found.add(value));
+        assertEquals(Set.of(-1), found);
+    }
+
+    @Test
+    void testQuadTreeCollapsesAndReusesNodes() {
+        QuadTree<Integer> tree = new QuadTree<>(0f, 0f, 1000f, 1000f);
+        Random random = new Random(7);
+        int[] proxies = new int[PROXIES];
+        for (int i = 0; i < PROXIES; i++) {
+            float[] b = randomBox(random);
+            proxies[i] = tree.add(i, b[0], b[1], b[2], b[3]);
+        }
+        int nodes = tree.getNodeCount();
+        assertTrue(nodes > 1);
+        for (int p : proxies) {
+            tree.remove(p);
+        }
+        assertEquals(0, tree.size());
+        assertEquals(1, tree.getNodeCount());
+        random = new Random(7);
+        for (int i = 0; i < PROXIES; i++) {
+            float[] b = randomBox(random);
+            tree.add(i, b[0], b[1], b[2], b[3]);
+        }
+        assertEquals(nodes, tree.getNodeCount());
+    }
+
+    @Test
+    void testSweepAndPrune() {
+        checkAgainstBruteForce(new SweepAndPrune<>());
+    }
+
+    @Test
+    void testAabbTree() {
+        checkAgainstBruteForce(new AabbTree<>());
+    }
+
+    @Test
+    void testAabbTreeIsBalancedAndKeepsFatBoxes() {
+        AabbTree<Integer> tree = new AabbTree<>(2f);
+        int p = Broadphase.NULL_PROXY;
+        // Boxes added in sorted order would form a list without rotations.
+        for (int i = 0; i < 1024; i++) {
+            p = tree.add(i, 10f * i, 0f, 10f * i + 5f, 5f);
+        }
+        assertTrue(tree.getHeight() <= 20, "Height " + tree.getHeight());
+        assertEquals(2 * 1024 - 1, tree.getNodeCount());
+        assertFalse(tree.move(p, 10f * 1023 + 1f, 1f, 10f * 1023 + 6f, 6f));
+        assertTrue(tree.move(p, 10f * 1023 + 3f, 0f, 10f * 1023 + 8f, 5f));
+        for (int i = 0; i < 1024; i++) {
+            tree.remove(i);
+        }
+        assertEquals(0, tree.getNodeCount());
+        assertEquals(-1, tree.getHeight());
+    }
+
+    @Test
+    void testSpatialHashGrid() {
+        // A small cell size puts most boxes in several cells.
+        checkAgainstBruteForce(new SpatialHashGrid<>(16f));
+    }
+
+    @Test
+    void testSpatialHashGridMovesOnlyOnCellChange() {
+        SpatialHashGrid<Integer> grid = new SpatialHashGrid<>(10f);
+        int p = grid.add(0, 1f, 1f, 2f, 2f);
+        assertFalse(grid.move(p, 3f, 3f, 4f, 4f));
+        assertTrue(grid.move(p, 9f, 9f, 11f, 11f));
+        assertTrue(grid.move(p, -5f, -5f, -4f, -4f));
+        Set<Integer> found = new HashSet<>();
+        grid.query(-100f, -100f, 100f, 100f, (proxy, value) -> found.add(value));
+        assertEquals(Set.of(0), found);
+    }
+
+    /**
+     * Time a few steps of moving every body and finding all pairs, with
+     * the same density of bodies of about the same size for every count.
+     */
+    private static long timeSteps(Broadphase<Integer> broadphase, int count, float side) {
+        Random random = new Random(1);
+        float[][] boxes = new float[count][];
+        int[] proxies = new int[count];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * side;
+            float y = random.nextFloat() * side;
+            boxes[i] = new float[] {x, y, x + 8f, y + 8f};
+            proxies[i] = broadphase.add(i, x, y, x + 8f, y + 8f);
+        }
+        int[] pairs = new int[1];
+        long start = System.nanoTime();
+        for (int step = 0; step < 10; step++) {
+            for (int i = 0; i < count; i++) {
+                float[] b = boxes[i];
+                float d = random.nextFloat() - 0.5f;
+                b[0] += d;
+                b[1] += d;
+                b[2] += d;
+                b[3] += d;
+                broadphase.move(proxies[i], b[0], b[1], b[2], b[3]);
+            }
+            broadphase.queryPairs((a, b) -> pairs[0]++);
+        }
+        return (System.nanoTime() - start) / 10;
+    }
+
+    /**
+     * Slow, run with the benchmark profile: mvn test -Pbenchmark
+     */
+    @Test
+    @Tag("benchmark")
+    void testSpatialHashGridAgainstQuadTreeTiming() {
+        for (int count : new int[] {1_000, 10_000, 100_000}) {
+            float side = (float) Math.sqrt(count) * 32f;
+            long tree = timeSteps(new QuadTree<>(0f, 0f, side, side), count, side);
+            long grid = timeSteps(new SpatialHashGrid<>(16f), count, side);
+            LOGGER.debug("{} bodies, ns per step: quad tree {}, grid {}", count, tree, grid);
+            if (count >= 10_000) {
+                assertTrue(grid <= tree,
+                        count + " bodies: grid " + grid + " ns, quad tree " + tree + " ns");
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
+import com.github.javachaos.chaosdungeons.ecs.storage.BodyStore;
+import org.junit.jupiter.api.Test;
+
+class TestIslands {
+
+    @Test
+    void testIslandsSleepTogether() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        Body c = store.create();
+        Body d = store.create();
+        // a rests on b, which is pushed along by c, d is alone and at rest.
+        c.setVelocity(1f, 0f);
+        Islands islands = new Islands();
+        for (int step = 0; step < 5; step++) {
+            islands.reset(store.size());
+            islands.union(a.getIndex(), b.getIndex());
+            islands.union(b.getIndex(), c.getIndex());
+            store.integrate(0.1f);
+            islands.sleep(store, 3);
+        }
+        assertEquals(islands.find(a.getIndex()), islands.find(c.getIndex()));
+        assertNotEquals(islands.find(a.getIndex()), islands.find(d.getIndex()));
+        assertFalse(a.isAsleep());
+        assertFalse(b.isAsleep());
+        assertTrue(d.isAsleep());
+        c.setVelocity(0f, 0f);
+        for (int step = 0; step < 3; step++) {
+            islands.reset(store.size());
+            islands.union(a.getIndex(), b.getIndex());
+            islands.union(b.getIndex(), c.getIndex());
+            store.integrate(0.1f);
+            assertEquals(step < 2 ? 1 : 4, islands.sleep(store, 3));
+        }
+        assertTrue(a.isAsleep());
+        assertTrue(c.isAsleep());
+    }
+
+    @Test
+    void testRemovedSupportWakesStack() {
+        BodyStore store = new BodyStore();
+        Body bottom = store.create();
+        Body left = store.create();
+        Body right = store.create();
+        Body far = store.create();
+        left.setPosition(0f, 1f);
+        right.setPosition(2f, 1f);
+        far.setPosition(10f, 0f);
+        // left and right rest on bottom, far rests on its own.
+        Broadphase<Body> broadphase = new AabbTree<>();
+        broadphase.add(left, 0f, 1f, 1f, 2f);
+        broadphase.add(right, 2f, 1f, 3f, 2f);
+        broadphase.add(far, 10f, 0f, 11f, 1f);
+        int proxy = broadphase.add(bottom, 0f, 0f, 3f, 1f);
+        Islands islands = new Islands();
+        for (int step = 0; step < 3; step++) {
+            islands.reset(store.size());
+            islands.union(bottom.getIndex(), left.getIndex());
+            islands.union(bottom.getIndex(), right.getIndex());
+            store.integrate(0.1f);
+            islands.sleep(store, 3);
+        }
+        assertTrue(left.isAsleep());
+        assertTrue(right.isAsleep());
+        assertTrue(far.isAsleep());
+        for (Body b : new Body[] {left, right, far}) {
+            b.setInvMass(1f);
+            b.setGravity(1f);
+        }
+        Islands.wakeAround(broadphase, 0f, 0f, 3f, 1f, 0.1f, body -> body);
+        broadphase.remove(proxy);
+        assertFalse(left.isAsleep());
+        assertFalse(right.isAsleep());
+        assertTrue(far.isAsleep());
+        for (int step = 0; step < 5; step++) {
+            islands.reset(store.size());
+            store.integrate(0.1f);
+            islands.sleep(store, 3);
+        }
+        assertFalse(left.isAsleep());
+        assertFalse(right.isAsleep());
+        assertTrue(left.getY() < 1f);
+        assertTrue(right.getY() < 1f);
+        assertEquals(0f, far.getY());
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TestPairCache {
+
+    @Test
+    void testKeyIsOrderIndependent() {
+        assertEquals(PairCache.key(3, 7), PairCache.key(7, 3));
+        assertEquals(3L << 32 | 7L, PairCache.key(7, 3));
+    }
+
+    @Test
+    void testPairsAreUniqueAndOrdered() {
+        PairCache<String> cache = new PairCache<>();
+        assertTrue(cache.add(5, "e", 2, "b"));
+        assertFalse(cache.add(2, "b", 5, "e"));
+        assertFalse(cache.add(4, "d", 4, "d"));
+        assertTrue(cache.add(1, "a", 2, "b"));
+        assertEquals(2, cache.size());
+        assertEquals("b", cache.getFirst(0));
+        assertEquals("e", cache.getSecond(0));
+        assertTrue(cache.contains(5, 2));
+        assertFalse(cache.contains(1, 5));
+    }
+
+    @Test
+    void testClearAndGrow() {
+        PairCache<Integer> cache = new PairCache<>();
+        for (int step = 0; step < 3; step++) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(cache.add(i, i, i + 1, i + 1));
+                assertFalse(cache.add(i + 1, i + 1, i, i));
+            }
+            assertEquals(1000, cache.size());
+            assertTrue(cache.contains(999, 1000));
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertFalse(cache.contains(0, 1));
+        }
+    }
+}
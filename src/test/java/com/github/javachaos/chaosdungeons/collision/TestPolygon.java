@@ -113,6 +113,50 @@ class TestPolygon {
         assertEquals(new Polygon.Point(6, 7), p3);
     }
 
+    @Tag("fast")
+    @Test
+    void testIndexedAccess() {
+        Polygon p = new Polygon(4);
+        p.addPoint(0, 0);
+        p.addPoint(2, 0);
+        p.addPoint(2, 2);
+        p.addPoint(0, 2);
+        assertEquals(4, p.getVertexCount());
+        assertEquals(2, p.support(1, 1));
+        p.remove(1);
+        // Keys stay the same, indices close up.
+        assertEquals(3, p.getVertexCount());
+        assertEquals(4, p.getSize());
+        assertEquals(null, p.getPoint(1));
+        assertEquals(new Polygon.Point(2, 2), p.getPoint(2));
+        assertEquals(2f, p.getX(1));
+        assertEquals(1, p.support(1, 1));
+        p.translate(1, 1);
+        assertEquals(new Polygon.Point(1, 3), p.getPoint(3));
+    }
+
+    @Tag("fast")
+    @Test
+    void testCachedBounds() {
+        Polygon p = new Polygon(4);
+        p.addPoint(0, 0);
+        p.addPoint(2, 0);
+        p.addPoint(2, 2);
+        assertEquals(new Polygon.Bounds(0f, 0f, 2f, 2f), p.getBounds());
+        assertTrue(p.getBounds() == p.getBounds());
+        assertEquals(2f, p.getArea());
+        p.translate(3, -1);
+        assertEquals(new Polygon.Bounds(3f, -1f, 2f, 2f), p.getBounds());
+        assertEquals(5f, p.getMaxX());
+        assertEquals(2f, p.getArea());
+        assertTrue(new Polygon.Point(4f + 1f / 3f, -1f / 3f).equals(p.getCenter(), 0.0001f));
+        p.addPoint(3, 3);
+        assertEquals(new Polygon.Bounds(3f, -1f, 2f, 4f), p.getBounds());
+        assertEquals(p.computeArea(), p.getArea());
+        p.remove(3);
+        assertEquals(1f, p.getMaxY());
+    }
+
     @Tag("fast")
     @Test
     void testTranslate() {
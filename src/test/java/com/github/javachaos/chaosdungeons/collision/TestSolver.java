@@ -0,0 +1,165 @@
+package com.github.javachaos.chaosdungeons.collision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.javachaos.chaosdungeons.ecs.storage.Body;
+import com.github.javachaos.chaosdungeons.ecs.storage.BodyStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.EntityIdPool;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class TestSolver {
+
+    @Test
+    void testInelasticHeadOnContact() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        a.setVelocity(2f, 0f);
+        b.setVelocity(-2f, 0f);
+        Solver solver = new Solver();
+        solver.addContact(0L, 1L, 0, a, 1f, b, 1f, 1f, 0f, 0f, 0f);
+        solver.solve();
+        assertEquals(0f, a.getVx(), 1e-5f);
+        assertEquals(0f, b.getVx(), 1e-5f);
+        assertEquals(2f, solver.getCachedImpulse(0L, 1L, 0), 1e-5f);
+    }
+
+    @Test
+    void testWarmStartHoldsRestingBody() {
+        BodyStore store = new BodyStore();
+        Body box = store.create();
+        Body ground = store.create();
+        ground.setFixed(true);
+        Solver solver = new Solver(1);
+        float dt = 0.016f;
+        for (int step = 0; step < 10; step++) {
+            // Gravity pulls the box into the ground below it.
+            box.setVelocity(0f, box.getVy() - 9.8f * dt);
+            solver.addContact(0L, 1L, 0, box, 1f, ground, 1f, 0f, -1f, 0f, 0f);
+            solver.solve();
+            assertEquals(0f, box.getVy(), 1e-5f);
+            assertEquals(0f, ground.getVy());
+        }
+        assertEquals(9.8f * dt, solver.getCachedImpulse(0L, 1L, 0), 1e-5f);
+        // A contact which is gone is not warm started.
+        solver.solve();
+        assertEquals(0f, solver.getCachedImpulse(0L, 1L, 0));
+    }
+
+    @Test
+    void testRecycledIdDoesNotInheritContact() {
+        EntityIdPool pool = new EntityIdPool();
+        long ground = pool.allocate();
+        long box = pool.allocate();
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        b.setVelocity(0f, -1f);
+        Solver solver = new Solver();
+        solver.addContact(ground, box, 0, a, 0f, b, 1f, 0f, 1f, 0f, 0f);
+        solver.solve();
+        assertEquals(1f, solver.getCachedImpulse(box, ground, 0), 1e-5f);
+        // A new entity in the slot of the box starts without an impulse.
+        pool.free(box);
+        long next = pool.allocate();
+        assertEquals(EntityIdPool.index(box), EntityIdPool.index(next));
+        assertEquals(0f, solver.getCachedImpulse(ground, next, 0));
+    }
+
+    @Test
+    void testPositionCorrection() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        b.setPosition(1f, 0f);
+        Solver solver = new Solver();
+        solver.addContact(0L, 1L, 0, a, 1f, b, 1f, 1f, 0f, 1.01f, 0f);
+        solver.solve();
+        assertEquals(-0.1f, a.getX(), 1e-5f);
+        assertEquals(1.1f, b.getX(), 1e-5f);
+        assertEquals(0f, a.getVx());
+        assertEquals(3, new Solver(3).getIterations());
+        assertThrows(IllegalArgumentException.class, () -> new Solver(0));
+    }
+
+    @Test
+    void testManifoldSharesPositionCorrection() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        b.setPosition(1f, 0f);
+        Solver solver = new Solver();
+        // Two points at the same depth move the bodies as far as one.
+        solver.addContact(0L, 1L, 0, a, 1f, b, 1f, 1f, 0f, 1.01f, 0f, 0.5f);
+        solver.addContact(0L, 1L, 1, a, 1f, b, 1f, 1f, 0f, 1.01f, 0f, 0.5f);
+        solver.solve();
+        assertEquals(-0.1f, a.getX(), 1e-5f);
+        assertEquals(1.1f, b.getX(), 1e-5f);
+    }
+
+    @Test
+    void testColoredBatchesAreThreadIndependent() {
+        int n = 60;
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            BodyStore serial = pile(n);
+            BodyStore parallel = pile(n);
+            Solver s1 = new Solver(4, one);
+            Solver s4 = new Solver(4, four);
+            for (int step = 0; step < 3; step++) {
+                addContacts(s1, serial, n);
+                addContacts(s4, parallel, n);
+                s1.solve();
+                s4.solve();
+            }
+            // A grid of bodies has at most four contacts per body.
+            assertTrue(s4.getBatchCount() <= 7);
+            for (int i = 0; i < serial.size(); i++) {
+                assertEquals(serial.getVx(i), parallel.getVx(i));
+                assertEquals(serial.getVy(i), parallel.getVy(i));
+                assertEquals(serial.getX(i), parallel.getX(i));
+                assertEquals(serial.getY(i), parallel.getY(i));
+            }
+            // The ground is shared by a whole row but never moved.
+            assertEquals(0f, serial.getVy(n * n));
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    private static BodyStore pile(int n) {
+        BodyStore store = new BodyStore();
+        for (int i = 0; i < n * n; i++) {
+            Body b = store.create();
+            b.setPosition(i % n, i / n);
+            b.setVelocity((i % 7) - 3f, -(i % 5));
+        }
+        store.create();
+        return store;
+    }
+
+    private static void addContacts(Solver solver, BodyStore store, int n) {
+        Body ground = store.getBody(n * n);
+        for (int i = 0; i < n * n; i++) {
+            int x = i % n;
+            int y = i / n;
+            if (x + 1 < n) {
+                solver.addContact(i, i + 1, 0, store.getBody(i), 1f, store.getBody(i + 1), 1f,
+                        1f, 0f, 0.05f, 0.5f);
+            }
+            if (y + 1 < n) {
+                solver.addContact(i, i + n, 0, store.getBody(i), 1f, store.getBody(i + n), 1f,
+                        0f, 1f, 0.05f, 0.5f);
+            }
+            if (y == 0) {
+                solver.addContact(i, n * n, 0, store.getBody(i), 1f, ground, 0f,
+                        0f, -1f, 0.05f, 0.5f);
+            }
+        }
+    }
+}
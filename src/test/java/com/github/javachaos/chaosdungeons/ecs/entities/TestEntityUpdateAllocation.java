@@ -0,0 +1,108 @@
+package com.github.javachaos.chaosdungeons.ecs.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.SparseStorage;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
+import com.github.javachaos.chaosdungeons.ecs.storage.ArchetypeStore;
+import com.github.javachaos.chaosdungeons.ecs.storage.EntityIdPool;
+
+class TestEntityUpdateAllocation {
+
+    private static final int WARMUP_TICKS = 50_000;
+    private static final int TICKS = 10_000;
+
+    private static class CountingComponent extends Component {
+        int updates;
+
+        @Override
+        public void update(double dt) {
+            updates++;
+        }
+
+        @Override
+        public void destroy() {
+            //Unused
+        }
+    }
+
+    @SparseStorage
+    private static class SparseCountingComponent extends CountingComponent {
+    }
+
+    private static class TestEntity extends Entity {
+        private int ticks;
+
+        @Override
+        public void init() {
+            //Unused
+        }
+
+        @Override
+        protected void update(float dt) {
+            ticks++;
+        }
+
+        @Override
+        public void destroy() {
+            //Unused
+        }
+    }
+
+    /**
+     * Read the bytes allocated by the current thread through the
+     * com.sun.management extension of ThreadMXBean, looked up reflectively
+     * since the game module does not read jdk.management.
+     */
+    private static long allocatedBytes(Object bean, Method method) throws ReflectiveOperationException {
+        return (Long) method.invoke(bean, Thread.currentThread().getId());
+    }
+
+    @Test
+    void testSteadyStateUpdateDoesNotAllocate() throws ReflectiveOperationException {
+        Object bean;
+        Method method;
+        try {
+            bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            method = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ClassNotFoundException ex) {
+            bean = null;
+            method = null;
+        }
+        assumeTrue(method != null && method.getDeclaringClass().isInstance(bean));
+
+        ArchetypeStore store = new ArchetypeStore();
+        TestEntity e = new TestEntity();
+        e.setEntityId(EntityIdPool.pack(0, 0));
+        CountingComponent counting = new CountingComponent();
+        SparseCountingComponent sparse = new SparseCountingComponent();
+        e.addComponent(new TransformComponent());
+        e.addComponent(counting);
+        e.attach(store);
+        e.addComponent(sparse);
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            e.update(0.016);
+        }
+        long before = allocatedBytes(bean, method);
+        for (int i = 0; i < TICKS; i++) {
+            e.update(0.016);
+        }
+        long allocated = allocatedBytes(bean, method) - before;
+
+        assertEquals(WARMUP_TICKS + TICKS, e.ticks);
+        assertEquals(WARMUP_TICKS + TICKS, counting.updates);
+        assertEquals(WARMUP_TICKS + TICKS, sparse.updates);
+        // Any allocation per tick would cost at least 16 bytes per tick.
+        assertTrue(allocated < TICKS, "Allocated " + allocated + " bytes in " + TICKS + " ticks.");
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.ComponentRegistry;
+import com.github.javachaos.chaosdungeons.ecs.components.GravityComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.PhysicsComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.SparseStorage;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+class TestArchetypeStore {
+
+    private static class TestEntity extends Entity {
+        @Override
+        public void init() {
+            //Unused
+        }
+
+        @Override
+        protected void update(float dt) {
+            //Unused
+        }
+
+        @Override
+        public void destroy() {
+            //Unused
+        }
+    }
+
+    @SparseStorage
+    private static class Marker extends Component {
+        @Override
+        public void update(double dt) {
+            //Unused
+        }
+
+        @Override
+        public void destroy() {
+            //Unused
+        }
+    }
+
+    @Test
+    void testSharedArchetype() {
+        ArchetypeStore store = new ArchetypeStore();
+        TestEntity a = new TestEntity();
+        TestEntity b = new TestEntity();
+        a.attach(store);
+        b.attach(store);
+        a.addComponent(new TransformComponent());
+        a.addComponent(new GravityComponent(1f, 1f, new Vector2f()));
+        b.addComponent(new TransformComponent());
+        b.addComponent(new GravityComponent(1f, 1f, new Vector2f()));
+        assertSame(a.getArchetype(), b.getArchetype());
+        assertEquals(2, a.getArchetype().size());
+        assertEquals(1, store.getArchetypes(PhysicsComponent.class).size());
+    }
+
+    @Test
+    void testGetComponentBySuperType() {
+        ArchetypeStore store = new ArchetypeStore();
+        TestEntity a = new TestEntity();
+        GravityComponent g = new GravityComponent(1f, 1f, new Vector2f());
+        a.addComponent(g);
+        a.attach(store);
+        assertSame(g, a.getComponent(PhysicsComponent.class));
+        assertTrue(a.hasComponent(PhysicsComponent.class));
+        assertFalse(a.hasComponent(TransformComponent.class));
+        assertNull(a.getComponent(TransformComponent.class));
+    }
+
+    @Test
+    void testRemoveComponentKeepsRowsConsistent() {
+        ArchetypeStore store = new ArchetypeStore();
+        TestEntity a = new TestEntity();
+        TestEntity b = new TestEntity();
+        TransformComponent ta = new TransformComponent();
+        TransformComponent tb = new TransformComponent();
+        a.attach(store);
+        b.attach(store);
+        a.addComponent(ta);
+        b.addComponent(tb);
+        a.removeComponent(ta);
+        assertFalse(a.hasComponent(TransformComponent.class));
+        assertSame(tb, b.getComponent(TransformComponent.class));
+        assertEquals(0, b.getRow());
+        store.remove(b);
+        assertNull(b.getArchetype());
+        assertEquals(List.of(), store.getArchetypes(TransformComponent.class).stream()
+                .filter(x -> x.size() > 0).toList());
+    }
+
+    @Test
+    void testQueryCacheTracksNewArchetypes() {
+        ArchetypeStore store = new ArchetypeStore();
+        assertEquals(0, store.getArchetypes(TransformComponent.class).size());
+        TestEntity a = new TestEntity();
+        a.attach(store);
+        a.addComponent(new TransformComponent());
+        assertEquals(1, store.getArchetypes(TransformComponent.class).size());
+    }
+
+    @Test
+    void testQueryIsLive() {
+        ArchetypeStore store = new ArchetypeStore();
+        Query<TestEntity> q = store.query(PhysicsComponent.class, TransformComponent.class);
+        assertSame(q, store.query(TransformComponent.class, PhysicsComponent.class));
+        TestEntity a = new TestEntity();
+        a.attach(store);
+        a.addComponent(new TransformComponent());
+        assertTrue(q.isEmpty());
+        GravityComponent g = new GravityComponent(1f, 1f, new Vector2f());
+        a.addComponent(g);
+        assertEquals(1, q.size());
+        assertEquals(List.of(a), q.toList());
+        a.removeComponent(g);
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    void testSignature() {
+        ArchetypeStore store = new ArchetypeStore();
+        TestEntity a = new TestEntity();
+        GravityComponent g = new GravityComponent(1f, 1f, new Vector2f());
+        a.addComponent(g);
+        assertTrue(a.hasComponent(PhysicsComponent.class));
+        assertTrue(a.getSignature().get(ComponentRegistry.id(GravityComponent.class)));
+        a.attach(store);
+        assertTrue(a.hasComponent(PhysicsComponent.class));
+        assertFalse(a.hasComponent(TransformComponent.class));
+        a.addComponent(new TransformComponent());
+        assertTrue(a.hasComponent(TransformComponent.class));
+        a.removeComponent(g);
+        assertFalse(a.hasComponent(PhysicsComponent.class));
+        assertFalse(a.hasComponent(g));
+        a.detach();
+        assertTrue(a.hasComponent(TransformComponent.class));
+    }
+
+    @Test
+    void testSparseComponent() {
+        ArchetypeStore store = new ArchetypeStore();
+        Query<TestEntity> q = store.query(Marker.class, TransformComponent.class);
+        TestEntity a = new TestEntity();
+        TestEntity b = new TestEntity();
+        a.setEntityId(EntityIdPool.pack(0, 0));
+        b.setEntityId(EntityIdPool.pack(1, 0));
+        a.addComponent(new TransformComponent());
+        b.addComponent(new TransformComponent());
+        a.attach(store);
+        b.attach(store);
+        Archetype archetype = a.getArchetype();
+        Marker m = new Marker();
+        a.addComponent(m);
+        assertSame(archetype, a.getArchetype());
+        assertSame(m, a.getComponent(Marker.class));
+        assertTrue(a.hasComponent(m));
+        assertTrue(a.hasComponent(Marker.class));
+        assertFalse(b.hasComponent(Marker.class));
+        assertEquals(2, a.getComponents().size());
+        assertEquals(List.of(a), q.toList());
+        a.removeComponent(m);
+        assertFalse(a.hasComponent(Marker.class));
+        assertTrue(q.isEmpty());
+        b.addComponent(m);
+        assertEquals(List.of(b), q.toList());
+        b.detach();
+        assertTrue(b.hasComponent(m));
+        assertEquals(0, store.getPools().pool(Marker.class).size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+
+import com.github.javachaos.chaosdungeons.ecs.components.GravityComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
+
+class TestBodyStore {
+
+    @Test
+    void testIntegrate() {
+        BodyStore store = new BodyStore(1);
+        Body a = store.create();
+        Body b = store.create();
+        a.setVelocity(2f, 0f);
+        b.setPosition(1f, 1f);
+        b.setInvMass(2f);
+        b.setGravity(1f);
+        store.integrate(0.5f);
+        assertEquals(1f, a.getX(), 1e-6f);
+        assertEquals(0f, a.getVy(), 1e-6f);
+        assertEquals(1f, b.getY(), 1e-6f);
+        assertEquals(-19.6f, b.getVy(), 1e-4f);
+    }
+
+    @Test
+    void testSleepingBodiesAreNotIntegrated() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        b.setVelocity(1f, 0f);
+        store.integrate(1f);
+        store.integrate(1f);
+        assertEquals(2, store.getRestSteps(a.getIndex()));
+        assertEquals(0, store.getRestSteps(b.getIndex()));
+        b.sleep();
+        assertTrue(b.isAsleep());
+        assertEquals(0f, b.getVx());
+        b.setVelocity(5f, 0f);
+        store.integrate(1f);
+        assertEquals(2f, b.getX(), 1e-6f);
+        b.wake();
+        assertFalse(b.isAsleep());
+        store.integrate(1f);
+        assertEquals(7f, b.getX(), 1e-6f);
+    }
+
+    @Test
+    void testReleaseKeepsHandlesValid() {
+        BodyStore store = new BodyStore();
+        Body a = store.create();
+        Body b = store.create();
+        Body c = store.create();
+        c.setPosition(3f, 4f);
+        a.release();
+        a.release();
+        assertEquals(2, store.size());
+        assertEquals(0, c.getIndex());
+        assertSame(c, store.getBody(0));
+        assertEquals(3f, c.getX());
+        assertEquals(1, b.getIndex());
+    }
+
+    @Test
+    void testComponentsShareBody() {
+        BodyStore store = new BodyStore();
+        TransformComponent t = new TransformComponent();
+        GravityComponent g = new GravityComponent(0.5f, 1f, new Vector2f(1f, 0f), 0.0);
+        t.setPosition(5f, 6f);
+        Body body = store.create();
+        t.setBody(body);
+        g.setBody(body);
+        store.integrate(1f);
+        assertEquals(6f, t.getPosition().x, 1e-6f);
+        assertEquals(2f, g.getInvMass(), 1e-6f);
+        assertEquals(1f, g.getVelocity().x, 1e-6f);
+    }
+
+    @Test
+    void testParallelIntegrateIsDeterministic() {
+        BodyStore serial = new BodyStore();
+        BodyStore parallel = new BodyStore();
+        for (int i = 0; i < 5000; i++) {
+            for (BodyStore s : new BodyStore[] {serial, parallel}) {
+                Body b = s.create();
+                b.setPosition(i * 0.5f, -i * 0.25f);
+                b.setVelocity(i % 7, i % 13);
+                b.setInvMass(1f / (1 + i % 5));
+                b.setGravity(i % 3);
+                b.setFixed(i % 11 == 0);
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int step = 0; step < 10; step++) {
+                serial.integrate(0.016f);
+                parallel.integrate(0.016f, pool, 64);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.getX(i), parallel.getX(i));
+            assertEquals(serial.getY(i), parallel.getY(i));
+            assertEquals(serial.getVx(i), parallel.getVx(i));
+            assertEquals(serial.getVy(i), parallel.getVy(i));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TestEntityIdPool {
+
+    @Test
+    void testSlotsAreRecycled() {
+        EntityIdPool pool = new EntityIdPool();
+        long a = pool.allocate();
+        long b = pool.allocate();
+        assertEquals(2, pool.size());
+        assertTrue(pool.free(a));
+        assertFalse(pool.isAlive(a));
+        assertFalse(pool.free(a));
+        long c = pool.allocate();
+        assertEquals(EntityIdPool.index(a), EntityIdPool.index(c));
+        assertNotEquals(a, c);
+        assertEquals(1, EntityIdPool.generation(c));
+        assertTrue(pool.isAlive(b));
+        assertTrue(pool.isAlive(c));
+        assertEquals(2, pool.capacity());
+    }
+
+    @Test
+    void testCapacityStaysFlat() {
+        EntityIdPool pool = new EntityIdPool();
+        for (int i = 0; i < 10_000; i++) {
+            long id = pool.allocate();
+            pool.free(id);
+        }
+        assertEquals(0, pool.size());
+        assertEquals(1, pool.capacity());
+    }
+}
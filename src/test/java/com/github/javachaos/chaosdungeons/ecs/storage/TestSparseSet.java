@@ -0,0 +1,61 @@
+package com.github.javachaos.chaosdungeons.ecs.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
+import com.github.javachaos.chaosdungeons.ecs.entities.Entity;
+
+class TestSparseSet {
+
+    private static class TestEntity extends Entity {
+        TestEntity(int index) {
+            setEntityId(EntityIdPool.pack(index, 0));
+        }
+
+        @Override
+        public void init() {
+            //Unused
+        }
+
+        @Override
+        protected void update(float dt) {
+            //Unused
+        }
+
+        @Override
+        public void destroy() {
+            //Unused
+        }
+    }
+
+    @Test
+    void testPutRemove() {
+        SparseSet<TransformComponent> set = new SparseSet<>(TransformComponent.class);
+        TestEntity a = new TestEntity(3);
+        TestEntity b = new TestEntity(40);
+        TestEntity c = new TestEntity(7);
+        TransformComponent ta = new TransformComponent();
+        TransformComponent tb = new TransformComponent();
+        TransformComponent tc = new TransformComponent();
+        assertNull(set.put(a, ta));
+        assertNull(set.put(b, tb));
+        assertNull(set.put(c, tc));
+        assertSame(ta, set.put(a, ta));
+        assertEquals(3, set.size());
+        assertSame(ta, set.remove(a));
+        assertFalse(set.has(a));
+        assertNull(set.remove(a));
+        assertEquals(2, set.size());
+        assertSame(c, set.getEntity(0));
+        assertSame(tc, set.get(c));
+        assertSame(tb, set.get(b));
+        assertTrue(set.has(b));
+        assertFalse(set.has(new TestEntity(100)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.javachaos.chaosdungeons.ecs.systems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javachaos.chaosdungeons.ecs.components.Component;
+import com.github.javachaos.chaosdungeons.ecs.components.GravityComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.PhysicsComponent;
+import com.github.javachaos.chaosdungeons.ecs.components.TransformComponent;
+
+class TestSystemScheduler {
+
+    private static class TestSystem extends System {
+        private final Set<Class<? extends Component>> reads;
+        private final Set<Class<? extends Component>> writes;
+        private final AtomicInteger updates = new AtomicInteger();
+        private volatile Thread thread;
+        private boolean idle;
+
+        TestSystem(Set<Class<? extends Component>> reads, Set<Class<? extends Component>> writes) {
+            super(null);
+            this.reads = reads;
+            this.writes = writes;
+        }
+
+        @Override
+        public void update(double dt) {
+            updates.incrementAndGet();
+            thread = Thread.currentThread();
+        }
+
+        @Override
+        public boolean isIdle() {
+            return idle;
+        }
+
+        @Override
+        public Set<Class<? extends Component>> reads() {
+            return reads;
+        }
+
+        @Override
+        public Set<Class<? extends Component>> writes() {
+            return writes;
+        }
+
+        @Override
+        public void initSystem() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    @Test
+    void testStages() {
+        SystemScheduler scheduler = new SystemScheduler();
+        TestSystem physics = new TestSystem(Set.of(), Set.of(PhysicsComponent.class));
+        TestSystem gravity = new TestSystem(Set.of(GravityComponent.class), Set.of());
+        TestSystem transform = new TestSystem(Set.of(TransformComponent.class), Set.of());
+        TestSystem writer = new TestSystem(Set.of(), Set.of(TransformComponent.class));
+        scheduler.add(physics);
+        scheduler.add(gravity);
+        scheduler.add(transform);
+        scheduler.add(writer);
+        assertEquals(0, scheduler.getStage(physics));
+        assertEquals(1, scheduler.getStage(gravity));
+        assertEquals(0, scheduler.getStage(transform));
+        assertEquals(1, scheduler.getStage(writer));
+        assertEquals(2, scheduler.getStageCount());
+        for (int i = 0; i < 100; i++) {
+            scheduler.update(0.1);
+        }
+        assertEquals(100, physics.updates.get());
+        assertEquals(100, gravity.updates.get());
+        assertEquals(100, transform.updates.get());
+        assertEquals(100, writer.updates.get());
+    }
+
+    @Test
+    void testIdleStageRunsOnCallingThread() {
+        SystemScheduler scheduler = new SystemScheduler();
+        TestSystem load = new TestSystem(Set.of(), Set.of());
+        load.idle = true;
+        TestSystem physics = new TestSystem(Set.of(), Set.of(PhysicsComponent.class));
+        scheduler.add(load);
+        scheduler.add(physics);
+        assertEquals(1, scheduler.getStageCount());
+        for (int i = 0; i < 10; i++) {
+            scheduler.update(0.1);
+        }
+        assertEquals(0, load.updates.get());
+        assertEquals(10, physics.updates.get());
+        assertSame(Thread.currentThread(), physics.thread);
+    }
+}
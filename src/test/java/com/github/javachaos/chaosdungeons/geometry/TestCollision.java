@@ -1,8 +1,14 @@
 package com.github.javachaos.chaosdungeons.geometry;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.github.javachaos.chaosdungeons.collision.Collision;
 import com.github.javachaos.chaosdungeons.collision.Polygon;
+import com.github.javachaos.chaosdungeons.collision.Transform;
 import com.github.javachaos.chaosdungeons.geometry.util.ShapeBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,10 +41,10 @@ class TestCollision {
     long end = System.nanoTime();
     Collision p = rand.checkCollision(square);
     LOGGER.debug("Runtime: {}", end - start);
-    assertFalse(d.isColliding());
-    assertFalse(e.isColliding());
-    assertFalse(a.isColliding());
-    assertFalse(p.isColliding());
+    assertTrue(d.isColliding());
+    assertTrue(e.isColliding());
+    assertTrue(a.isColliding());
+    assertTrue(p.isColliding());
     LOGGER.debug("Collision: {}", d);
     LOGGER.debug("Collision: {}", e);
     LOGGER.debug("Collision: {}", a);
@@ -61,9 +67,102 @@ class TestCollision {
     LOGGER.debug("Runtime: {}", end - start);
     LOGGER.debug("Circle");
     Collision e = square.checkCollision(circle);
-    assertFalse(d.isColliding());
-    assertFalse(e.isColliding());
+    assertTrue(d.isColliding());
+    assertTrue(e.isColliding());
+    // The circle leaves the square fastest through its left side, x = 60.
+    assertEquals(115.0, d.getPenetrationDepth(), 0.01);
+    assertEquals(115.0, e.getPenetrationDepth(), 0.01);
+    assertEquals(1f, Math.abs(d.getCollisionNormal().x), 0.001f);
     LOGGER.debug("Collision: {}", d);
     LOGGER.debug("Collision: {}", e);
   }
+
+  @Test
+  void testNoCollision() {
+    Polygon circle = new ShapeBuilder.Circle().setPosition(new Vector2f(500, 500)).setNumPoints(20).setRadius(55).build();
+    Polygon square =
+            new ShapeBuilder.Rectangle().setPosition(new Vector2f(60, 60)).setWidth(250).setHeight(250)
+                    .build();
+    Collision d = circle.checkCollision(square);
+    assertFalse(d.isColliding());
+    assertSame(GJKDetector2D.NO_COLLISION, d);
+    assertSame(GJKDetector2D.NO_COLLISION, square.checkCollision(circle));
+  }
+
+  @Test
+  void testCollisionWithTransforms() {
+    // One 2x2 square in local space, shared by both bodies.
+    Polygon square = new ShapeBuilder.Rectangle().setPosition(-1, -1).setWidth(2).setHeight(2).build();
+    Transform ta = new Transform();
+    Transform tb = new Transform();
+    tb.set(2.3f, 0f, 0f);
+    assertSame(GJKDetector2D.NO_COLLISION, GJKDetector2D.checkCollision(square, ta, square, tb));
+    // Turned by 45 degrees the corner of b reaches x = 2.3 - sqrt(2).
+    tb.set(2.3f, 0f, (float) Math.PI / 4f);
+    Collision c = GJKDetector2D.checkCollision(square, ta, square, tb);
+    assertTrue(c.isColliding());
+    assertEquals(1f - (2.3f - (float) Math.sqrt(2)), c.getPenetrationDepth(), 0.001f);
+    assertEquals(1f, Math.abs(c.getCollisionNormal().x), 0.001f);
+    // The local shape is never moved.
+    assertEquals(-1f, square.getMinX());
+    assertEquals(1f, square.getMaxY());
+  }
+
+  @Test
+  void testTimeOfImpact() {
+    Polygon ball = new ShapeBuilder.Rectangle().setPosition(-.25f, -.25f).setWidth(.5f).setHeight(.5f).build();
+    Polygon wall = new ShapeBuilder.Rectangle().setPosition(5f, -10f).setWidth(.1f).setHeight(20f).build();
+    Transform start = new Transform();
+    Transform end = new Transform();
+    end.set(10f, 0f, 0f);
+    Transform none = new Transform();
+    // The ball is on either side of the wall at the ends of the step.
+    assertFalse(GJKDetector2D.checkCollision(ball, start, wall, none).isColliding());
+    assertFalse(GJKDetector2D.checkCollision(ball, end, wall, none).isColliding());
+    // Its right side reaches x = 5 after 4.75 of the 10 units.
+    assertEquals(.475f, GJKDetector2D.timeOfImpact(ball, start, 10f, 0f, wall, none), 0.001f);
+    assertEquals(GJKDetector2D.NO_IMPACT, GJKDetector2D.timeOfImpact(ball, start, -10f, 0f, wall, none));
+    assertEquals(GJKDetector2D.NO_IMPACT, GJKDetector2D.timeOfImpact(ball, start, 0f, 10f, wall, none));
+  }
+
+  @Test
+  void testManifoldOfBoxOnGround() {
+    Polygon box = new ShapeBuilder.Rectangle().setPosition(-1, -1).setWidth(2).setHeight(2).build();
+    Polygon ground = new ShapeBuilder.Rectangle().setPosition(-5, -1).setWidth(10).setHeight(2).build();
+    Transform tb = new Transform();
+    Transform tg = new Transform();
+    tg.set(0f, -1.9f, 0f);
+    Collision c = GJKDetector2D.checkCollision(box, tb, ground, tg);
+    assertTrue(c.isColliding());
+    assertEquals(2, c.getContactPoints().size());
+    float left = Math.min(c.getContactPoints().get(0).x, c.getContactPoints().get(1).x);
+    float right = Math.max(c.getContactPoints().get(0).x, c.getContactPoints().get(1).x);
+    assertEquals(-1f, left, 0.001f);
+    assertEquals(1f, right, 0.001f);
+    assertEquals(-0.9f, c.getContactPoints().get(0).y, 0.001f);
+    assertEquals(0.1f, c.getContactDepths()[0], 0.001f);
+    assertEquals(0.1f, c.getContactDepths()[1], 0.001f);
+    assertNotEquals(c.getContactIds()[0], c.getContactIds()[1]);
+    // Sliding along the ground keeps the same features in contact.
+    tg.set(0.3f, -1.92f, 0f);
+    Collision d = GJKDetector2D.checkCollision(box, tb, ground, tg);
+    assertArrayEquals(c.getContactIds(), d.getContactIds());
+  }
+
+  @Test
+  void testManifoldOfTiltedBox() {
+    Polygon box = new ShapeBuilder.Rectangle().setPosition(-1, -1).setWidth(2).setHeight(2).build();
+    Polygon ground = new ShapeBuilder.Rectangle().setPosition(-5, -1).setWidth(10).setHeight(2).build();
+    Transform tb = new Transform();
+    tb.set(0f, 0f, (float) Math.PI / 6f);
+    Transform tg = new Transform();
+    tg.set(0f, -2.3f, 0f);
+    Collision c = GJKDetector2D.checkCollision(box, tb, ground, tg);
+    assertTrue(c.isColliding());
+    // Only the lowest corner, at y = -(cos 30 + sin 30), reaches the ground.
+    float corner = (float) -(Math.cos(Math.PI / 6) + Math.sin(Math.PI / 6));
+    assertEquals(1, c.getContactPoints().size());
+    assertEquals(corner, c.getContactPoints().get(0).y, 0.001f);
+    assertEquals(-1.3f - corner, c.getContactDepths()[0], 0.001f);
+  }
 }